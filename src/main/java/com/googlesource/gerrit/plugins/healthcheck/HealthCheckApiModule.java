@@ -15,13 +15,26 @@
 package com.googlesource.gerrit.plugins.healthcheck;
 
 import static com.google.gerrit.server.config.ConfigResource.CONFIG_KIND;
+import static com.googlesource.gerrit.plugins.healthcheck.api.HealthCheckProfileResource.PROFILE_KIND;
+import static com.googlesource.gerrit.plugins.healthcheck.api.HealthCheckResource.HEALTHCHECK_KIND;
 
+import com.google.gerrit.extensions.registration.DynamicMap;
 import com.google.gerrit.extensions.restapi.RestApiModule;
-import com.googlesource.gerrit.plugins.healthcheck.api.HealthCheckStatusEndpoint;
+import com.googlesource.gerrit.plugins.healthcheck.api.HealthCheckLiveEndpoint;
+import com.googlesource.gerrit.plugins.healthcheck.api.HealthCheckProfileCollection;
+import com.googlesource.gerrit.plugins.healthcheck.api.HealthCheckProfileStatusView;
+import com.googlesource.gerrit.plugins.healthcheck.api.HealthCheckResourceStatusView;
+import com.googlesource.gerrit.plugins.healthcheck.api.HealthCheckStatusCollection;
 
 public class HealthCheckApiModule extends RestApiModule {
   @Override
   protected void configure() {
-    get(CONFIG_KIND, "status").to(HealthCheckStatusEndpoint.class);
+    DynamicMap.mapOf(binder(), HEALTHCHECK_KIND);
+    child(CONFIG_KIND, "status").to(HealthCheckStatusCollection.class);
+    get(HEALTHCHECK_KIND).to(HealthCheckResourceStatusView.class);
+    DynamicMap.mapOf(binder(), PROFILE_KIND);
+    child(CONFIG_KIND, "profile").to(HealthCheckProfileCollection.class);
+    get(PROFILE_KIND).to(HealthCheckProfileStatusView.class);
+    get(CONFIG_KIND, "live").to(HealthCheckLiveEndpoint.class);
   }
 }
@@ -25,13 +25,16 @@ import com.google.common.base.MoreObjects;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.flogger.FluentLogger;
 import com.google.gerrit.entities.Project;
 import com.google.gerrit.server.config.AllProjectsName;
 import com.google.gerrit.server.config.AllUsersName;
+import com.google.gerrit.server.config.ConfigUtil;
 import com.google.gerrit.server.config.GerritIsReplica;
 import com.google.gerrit.server.config.PluginConfigFactory;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import java.util.Arrays;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -41,10 +44,23 @@ import org.eclipse.jgit.lib.Config;
 
 @Singleton
 public class HealthCheckConfig {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
   public static final String HEALTHCHECK_PLUGIN_NAME = "healthcheck";
   public static final String HEALTHCHECK = "healthcheck";
+  public static final String LANE = "lane";
+  public static final String PROFILE = "profile";
   public static final HealthCheckConfig DEFAULT_CONFIG = new HealthCheckConfig(null);
   private static final long HEALTHCHECK_TIMEOUT_DEFAULT = 500L;
+  private static final long HEALTHCHECK_INTERVAL_DEFAULT = 0L;
+  private static final long HEALTHCHECK_BUDGET_DEFAULT = 0L;
+  private static final long REQUEST_TIMEOUT_DEFAULT = TimeUnit.SECONDS.toMillis(30);
+  private static final long STREAM_HEARTBEAT_DEFAULT = TimeUnit.SECONDS.toMillis(15);
+  private static final int TIMEOUT_MULTIPLIER_DEFAULT = 3;
+  private static final long MIN_TIMEOUT_DEFAULT = 100L;
+  private static final int FAILURE_THRESHOLD_DEFAULT = 0;
+  private static final long BACKOFF_DEFAULT = TimeUnit.SECONDS.toMillis(10);
+  private static final long MAX_BACKOFF_DEFAULT = TimeUnit.MINUTES.toMillis(5);
   private static final String QUERY_DEFAULT = "status:open";
   private static final int LIMIT_DEFAULT = 10;
   private static final int ACTIVE_WORKERS_THRESHOLD_DEFAULT = 80;
@@ -52,12 +68,30 @@ public class HealthCheckConfig {
   private static final String USERNAME_DEFAULT = "healthcheck";
   private static final String PASSWORD_DEFAULT = "";
   private static final String FAIL_FILE_FLAG_DEFAULT = "data/healthcheck/fail";
+  private static final int LANE_THREADS_DEFAULT = 1;
+  private static final int LANE_QUEUE_SIZE_DEFAULT = 1;
+  private static final long PROFILE_CACHE_TTL_DEFAULT = 0L;
+  private static final long[] LATENCY_BUCKETS_DEFAULT = {
+    5L, 10L, 25L, 50L, 100L, 250L, 500L, 1000L, 2500L, 5000L, 10000L
+  };
   private final AllProjectsName allProjectsName;
   private final AllUsersName allUsersName;
 
   private final Config config;
   private final boolean isReplica;
 
+  public enum ExecutorType {
+    PLATFORM,
+    VIRTUAL
+  }
+
+  public enum ProfilePolicy {
+    /** The profile passes when all its checks pass. */
+    ALL,
+    /** The profile passes when at least one of its checks passes. */
+    ANY
+  }
+
   private static final Set<String> HEALTH_CHECK_DISABLED_FOR_REPLICAS =
       ImmutableSet.of(CHANGES_INDEX, QUERYCHANGES);
 
@@ -106,6 +140,179 @@ public class HealthCheckConfig {
         HEALTHCHECK, healthCheckName, "timeout", defaultTimeout, TimeUnit.MILLISECONDS);
   }
 
+  public boolean isAdaptiveTimeout(String healthCheckName) {
+    boolean defaultAdaptive = healthCheckName != null && isAdaptiveTimeout(null);
+    return config.getBoolean(HEALTHCHECK, healthCheckName, "adaptiveTimeout", defaultAdaptive);
+  }
+
+  public int getTimeoutMultiplier(String healthCheckName) {
+    int defaultMultiplier =
+        healthCheckName == null ? TIMEOUT_MULTIPLIER_DEFAULT : getTimeoutMultiplier(null);
+    return config.getInt(HEALTHCHECK, healthCheckName, "timeoutMultiplier", defaultMultiplier);
+  }
+
+  public long getMinTimeout(String healthCheckName) {
+    long defaultMinTimeout = healthCheckName == null ? MIN_TIMEOUT_DEFAULT : getMinTimeout(null);
+    return config.getTimeUnit(
+        HEALTHCHECK, healthCheckName, "minTimeout", defaultMinTimeout, TimeUnit.MILLISECONDS);
+  }
+
+  public long getCacheTtl(String healthCheckName) {
+    long defaultCacheTtl = healthCheckName == null ? 0L : getCacheTtl(null);
+    return config.getTimeUnit(
+        HEALTHCHECK, healthCheckName, "cacheTtl", defaultCacheTtl, TimeUnit.MILLISECONDS);
+  }
+
+  public long getStaleTtl(String healthCheckName) {
+    long defaultStaleTtl = healthCheckName == null ? 0L : getStaleTtl(null);
+    return config.getTimeUnit(
+        HEALTHCHECK, healthCheckName, "staleTtl", defaultStaleTtl, TimeUnit.MILLISECONDS);
+  }
+
+  public long getBudget() {
+    return config.getTimeUnit(
+        HEALTHCHECK, null, "budget", HEALTHCHECK_BUDGET_DEFAULT, TimeUnit.MILLISECONDS);
+  }
+
+  public int getFailureThreshold(String healthCheckName) {
+    int defaultThreshold =
+        healthCheckName == null ? FAILURE_THRESHOLD_DEFAULT : getFailureThreshold(null);
+    return config.getInt(HEALTHCHECK, healthCheckName, "failureThreshold", defaultThreshold);
+  }
+
+  public long getBackoff(String healthCheckName) {
+    long defaultBackoff = healthCheckName == null ? BACKOFF_DEFAULT : getBackoff(null);
+    return config.getTimeUnit(
+        HEALTHCHECK, healthCheckName, "backoff", defaultBackoff, TimeUnit.MILLISECONDS);
+  }
+
+  public long getMaxBackoff(String healthCheckName) {
+    long defaultMaxBackoff = healthCheckName == null ? MAX_BACKOFF_DEFAULT : getMaxBackoff(null);
+    return config.getTimeUnit(
+        HEALTHCHECK, healthCheckName, "maxBackoff", defaultMaxBackoff, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Returns the upper bounds (ms) of the latency histogram buckets of the check, sorted in
+   * ascending order. Values that cannot be parsed as a time are ignored.
+   */
+  public long[] getLatencyBuckets(String healthCheckName) {
+    String[] buckets = config.getStringList(HEALTHCHECK, healthCheckName, "latencyBucket");
+    if (buckets.length == 0) {
+      return healthCheckName == null ? LATENCY_BUCKETS_DEFAULT.clone() : getLatencyBuckets(null);
+    }
+    return Arrays.stream(buckets)
+        .mapToLong(bucket -> ConfigUtil.getTimeUnit(bucket, -1L, TimeUnit.MILLISECONDS))
+        .filter(bucket -> bucket > 0L)
+        .sorted()
+        .distinct()
+        .toArray();
+  }
+
+  public boolean isVerbose() {
+    return config.getBoolean(HEALTHCHECK, null, "verbose", false);
+  }
+
+  public boolean isStatusFilterEnabled() {
+    return config.getBoolean(HEALTHCHECK, null, "statusFilter", false);
+  }
+
+  public long getRequestTimeout() {
+    return config.getTimeUnit(
+        HEALTHCHECK, null, "requestTimeout", REQUEST_TIMEOUT_DEFAULT, TimeUnit.MILLISECONDS);
+  }
+
+  public long getStreamHeartbeat() {
+    return config.getTimeUnit(
+        HEALTHCHECK, null, "streamHeartbeat", STREAM_HEARTBEAT_DEFAULT, TimeUnit.MILLISECONDS);
+  }
+
+  public long getInterval(String healthCheckName) {
+    if (healthCheckName == null) {
+      return config.getTimeUnit(
+          HEALTHCHECK, null, "interval", HEALTHCHECK_INTERVAL_DEFAULT, TimeUnit.MILLISECONDS);
+    }
+    long globalInterval = getInterval(null);
+    long interval =
+        config.getTimeUnit(
+            HEALTHCHECK, healthCheckName, "interval", globalInterval, TimeUnit.MILLISECONDS);
+    if (interval <= 0 && globalInterval > 0) {
+      logger.atWarning().log(
+          "Ignoring invalid interval %d ms of check %s, using the global interval of %d ms",
+          interval, healthCheckName, globalInterval);
+      return globalInterval;
+    }
+    return interval;
+  }
+
+  public ExecutorType getExecutorType() {
+    return config.getEnum(HEALTHCHECK, null, "executor", ExecutorType.PLATFORM);
+  }
+
+  public int getThreads() {
+    int threads =
+        config.getInt(
+            HEALTHCHECK, null, "threads", HealthCheckExtensionApiModule.CHECK_THREADS_DEFAULT);
+    if (threads <= 0) {
+      logger.atWarning().log(
+          "Ignoring invalid number of threads %d, using the default of %d",
+          threads, HealthCheckExtensionApiModule.CHECK_THREADS_DEFAULT);
+      return HealthCheckExtensionApiModule.CHECK_THREADS_DEFAULT;
+    }
+    return threads;
+  }
+
+  public String getLane(String healthCheckName) {
+    return config.getString(HEALTHCHECK, checkNotNull(healthCheckName), "lane");
+  }
+
+  public Set<String> getLanes() {
+    return config.getSubsections(LANE);
+  }
+
+  public int getLaneThreads(String laneName) {
+    int threads = config.getInt(LANE, laneName, "threads", LANE_THREADS_DEFAULT);
+    if (threads <= 0) {
+      logger.atWarning().log(
+          "Ignoring invalid number of threads %d of lane %s, using the default of %d",
+          threads, laneName, LANE_THREADS_DEFAULT);
+      return LANE_THREADS_DEFAULT;
+    }
+    return threads;
+  }
+
+  public int getLaneQueueSize(String laneName) {
+    int queueSize = config.getInt(LANE, laneName, "queueSize", LANE_QUEUE_SIZE_DEFAULT);
+    if (queueSize < 0) {
+      logger.atWarning().log(
+          "Ignoring invalid queueSize %d of lane %s, using the default of %d",
+          queueSize, laneName, LANE_QUEUE_SIZE_DEFAULT);
+      return LANE_QUEUE_SIZE_DEFAULT;
+    }
+    return queueSize;
+  }
+
+  public Set<String> getProfiles() {
+    return config.getSubsections(PROFILE);
+  }
+
+  public Set<String> getProfileChecks(String profileName) {
+    return ImmutableSet.copyOf(config.getStringList(PROFILE, checkNotNull(profileName), "check"));
+  }
+
+  public ProfilePolicy getProfilePolicy(String profileName) {
+    return config.getEnum(PROFILE, checkNotNull(profileName), "policy", ProfilePolicy.ALL);
+  }
+
+  public long getProfileCacheTtl(String profileName) {
+    return config.getTimeUnit(
+        PROFILE,
+        checkNotNull(profileName),
+        "cacheTtl",
+        PROFILE_CACHE_TTL_DEFAULT,
+        TimeUnit.MILLISECONDS);
+  }
+
   public String getQuery(String healthCheckName) {
     return getStringWithFallback("query", healthCheckName, QUERY_DEFAULT);
   }
@@ -163,6 +370,11 @@ public class HealthCheckConfig {
     return config.getBoolean(HEALTHCHECK, notNullHealthcheckName, "enabled", defaultValue);
   }
 
+  public Set<String> getDependsOn(String healthCheckName) {
+    return ImmutableSet.copyOf(
+        config.getStringList(HEALTHCHECK, checkNotNull(healthCheckName), "dependsOn"));
+  }
+
   public String[] getListOfBlockedThreadsThresholds() {
     return config.getStringList(HEALTHCHECK, BLOCKEDTHREADS, "threshold");
   }
@@ -0,0 +1,208 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.healthcheck;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.ForwardingListeningExecutorService;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gerrit.extensions.events.LifecycleListener;
+import com.google.gerrit.lifecycle.LifecycleModule;
+import com.google.inject.Module;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executor of the health checks.
+ *
+ * <p>By default all checks share the same executor. Checks can be assigned to isolated lanes, each
+ * one with its own threads and bounded queue, so that a check hanging on a slow subsystem cannot
+ * starve the execution of the other checks.
+ *
+ * <p>The executor is created by the API module, so that other plugins can execute their own checks
+ * with it, and its threads are stopped with the plugin.
+ */
+public class HealthCheckExecutor extends ForwardingListeningExecutorService
+    implements LifecycleListener {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  static Module module() {
+    return new LifecycleModule() {
+      @Override
+      protected void configure() {
+        listener().to(HealthCheckExecutor.class);
+      }
+    };
+  }
+
+  private final ListeningExecutorService defaultExecutor;
+  private final Lane defaultPool;
+  private final ImmutableMap<String, Lane> lanes;
+  private final HealthCheckConfig config;
+
+  public static HealthCheckExecutor create(HealthCheckConfig config) {
+    // Virtual threads are not pooled: every check gets its own thread and never waits in a queue
+    Lane defaultPool =
+        switch (config.getExecutorType()) {
+          case VIRTUAL -> null;
+          case PLATFORM ->
+              new Lane(
+                  config.getThreads(),
+                  new LinkedBlockingQueue<>(),
+                  threadFactory(config, "HealthCheck"));
+        };
+    ListeningExecutorService defaultExecutor =
+        defaultPool == null
+            ? MoreExecutors.listeningDecorator(
+                Executors.newThreadPerTaskExecutor(threadFactory(config, "HealthCheck")))
+            : defaultPool.executor();
+
+    ImmutableMap.Builder<String, Lane> lanes = ImmutableMap.builder();
+    for (String laneName : config.getLanes()) {
+      lanes.put(
+          laneName,
+          new Lane(
+              config.getLaneThreads(laneName),
+              laneQueue(config.getLaneQueueSize(laneName)),
+              threadFactory(config, "HealthCheck-" + laneName)));
+    }
+
+    return new HealthCheckExecutor(defaultExecutor, defaultPool, lanes.build(), config);
+  }
+
+  /**
+   * Returns the queue of the check executions waiting for a thread of the lane. Without a queue the
+   * executions are handed over directly to an idle thread and rejected when none is available.
+   */
+  private static BlockingQueue<Runnable> laneQueue(int queueSize) {
+    return queueSize == 0 ? new SynchronousQueue<>() : new ArrayBlockingQueue<>(queueSize);
+  }
+
+  private static ThreadFactory threadFactory(HealthCheckConfig config, String prefix) {
+    return switch (config.getExecutorType()) {
+      case VIRTUAL -> Thread.ofVirtual().name(prefix + "-", 0).factory();
+      case PLATFORM -> new ThreadFactoryBuilder().setNameFormat(prefix + "-%d").build();
+    };
+  }
+
+  private HealthCheckExecutor(
+      ListeningExecutorService defaultExecutor,
+      Lane defaultPool,
+      ImmutableMap<String, Lane> lanes,
+      HealthCheckConfig config) {
+    this.defaultExecutor = defaultExecutor;
+    this.defaultPool = defaultPool;
+    this.lanes = lanes;
+    this.config = config;
+  }
+
+  @Override
+  protected ListeningExecutorService delegate() {
+    return defaultExecutor;
+  }
+
+  @Override
+  public void start() {}
+
+  /** Stops the threads of all the executors, interrupting the checks still running. */
+  @Override
+  public void stop() {
+    defaultExecutor.shutdownNow();
+    lanes.values().forEach(lane -> lane.executor().shutdownNow());
+  }
+
+  /**
+   * Returns the executor of the lane the check is assigned to, or the default executor when the
+   * check is not assigned to any of the configured lanes.
+   */
+  public ListeningExecutorService forCheck(String checkName) {
+    String laneName = config.getLane(checkName);
+    if (laneName == null) {
+      return defaultExecutor;
+    }
+    Lane lane = lanes.get(laneName);
+    if (lane == null) {
+      logger.atWarning().log(
+          "Lane %s of check %s is not defined: executing the check with the shared executor",
+          laneName, checkName);
+      return defaultExecutor;
+    }
+    return lane.executor();
+  }
+
+  /**
+   * Returns the thread pool shared by the checks that are not assigned to any lane, which is empty
+   * when the checks are executed on virtual threads.
+   */
+  public Optional<Lane> defaultPool() {
+    return Optional.ofNullable(defaultPool);
+  }
+
+  public ImmutableMap<String, Lane> lanes() {
+    return lanes;
+  }
+
+  /** Thread pool with a fixed number of threads, that counts the executions it rejects. */
+  public static class Lane {
+    private final AtomicLong rejectedTasks = new AtomicLong();
+    private final ThreadPoolExecutor pool;
+    private final ListeningExecutorService executor;
+
+    Lane(int threads, BlockingQueue<Runnable> queue, ThreadFactory threadFactory) {
+      this.pool =
+          new ThreadPoolExecutor(
+              threads,
+              threads,
+              0L,
+              TimeUnit.MILLISECONDS,
+              queue,
+              threadFactory,
+              new ThreadPoolExecutor.AbortPolicy() {
+                @Override
+                public void rejectedExecution(Runnable task, ThreadPoolExecutor threadPool) {
+                  rejectedTasks.incrementAndGet();
+                  super.rejectedExecution(task, threadPool);
+                }
+              });
+      this.executor = MoreExecutors.listeningDecorator(pool);
+    }
+
+    ListeningExecutorService executor() {
+      return executor;
+    }
+
+    public int activeThreads() {
+      return pool.getActiveCount();
+    }
+
+    public int queuedTasks() {
+      return pool.getQueue().size();
+    }
+
+    public long rejectedTasks() {
+      return rejectedTasks.get();
+    }
+  }
+}
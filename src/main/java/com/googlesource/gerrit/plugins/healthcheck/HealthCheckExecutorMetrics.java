@@ -0,0 +1,99 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.healthcheck;
+
+import com.google.gerrit.extensions.events.LifecycleListener;
+import com.google.gerrit.extensions.registration.RegistrationHandle;
+import com.google.gerrit.lifecycle.LifecycleModule;
+import com.google.gerrit.metrics.Description;
+import com.google.gerrit.metrics.MetricMaker;
+import com.google.inject.Inject;
+import com.google.inject.Module;
+import com.google.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Singleton
+public class HealthCheckExecutorMetrics implements LifecycleListener {
+
+  static Module module() {
+    return new LifecycleModule() {
+      @Override
+      protected void configure() {
+        listener().to(HealthCheckExecutorMetrics.class);
+      }
+    };
+  }
+
+  private final HealthCheckExecutor executor;
+  private final MetricMaker metricMaker;
+  private final List<RegistrationHandle> registrations = new ArrayList<>();
+
+  @Inject
+  HealthCheckExecutorMetrics(HealthCheckExecutor executor, MetricMaker metricMaker) {
+    this.executor = executor;
+    this.metricMaker = metricMaker;
+  }
+
+  @Override
+  public void start() {
+    executor
+        .defaultPool()
+        .ifPresent(pool -> registerPoolMetrics("executor", "default executor", pool));
+    for (Map.Entry<String, HealthCheckExecutor.Lane> lane : executor.lanes().entrySet()) {
+      String laneName = lane.getKey();
+      registerPoolMetrics(
+          String.format("lane/%s", laneName.toLowerCase().replaceAll("[^\\w-/]", "_")),
+          String.format("%s lane", laneName),
+          lane.getValue());
+    }
+  }
+
+  private void registerPoolMetrics(
+      String metricPrefix, String poolName, HealthCheckExecutor.Lane pool) {
+    registrations.add(
+        metricMaker.newCallbackMetric(
+            metricPrefix + "/active_threads",
+            Integer.class,
+            new Description(String.format("Number of %s threads executing health checks", poolName))
+                .setGauge()
+                .setUnit("threads"),
+            pool::activeThreads));
+    registrations.add(
+        metricMaker.newCallbackMetric(
+            metricPrefix + "/queued_tasks",
+            Integer.class,
+            new Description(
+                    String.format("Number of health checks waiting in the %s queue", poolName))
+                .setGauge()
+                .setUnit("tasks"),
+            pool::queuedTasks));
+    registrations.add(
+        metricMaker.newCallbackMetric(
+            metricPrefix + "/rejected_tasks",
+            Long.class,
+            new Description(String.format("Number of health checks rejected by the %s", poolName))
+                .setCumulative()
+                .setUnit("tasks"),
+            pool::rejectedTasks));
+  }
+
+  @Override
+  public void stop() {
+    registrations.forEach(RegistrationHandle::remove);
+    registrations.clear();
+  }
+}
@@ -15,20 +15,30 @@
 package com.googlesource.gerrit.plugins.healthcheck;
 
 import com.google.common.util.concurrent.ListeningExecutorService;
-import com.google.common.util.concurrent.MoreExecutors;
 import com.google.gerrit.extensions.registration.DynamicSet;
 import com.google.inject.AbstractModule;
+import com.google.inject.Inject;
 import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheck;
-import java.util.concurrent.Executors;
 
 public class HealthCheckExtensionApiModule extends AbstractModule {
   public static final int CHECK_THREADS_DEFAULT = 10;
 
+  private final HealthCheckConfig config;
+
+  public HealthCheckExtensionApiModule() {
+    this(HealthCheckConfig.DEFAULT_CONFIG);
+  }
+
+  @Inject
+  public HealthCheckExtensionApiModule(HealthCheckConfig config) {
+    this.config = config;
+  }
+
   @Override
   protected void configure() {
-    bind(ListeningExecutorService.class)
-        .toInstance(
-            MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(CHECK_THREADS_DEFAULT)));
+    HealthCheckExecutor executor = HealthCheckExecutor.create(config);
+    bind(HealthCheckExecutor.class).toInstance(executor);
+    bind(ListeningExecutorService.class).toInstance(executor);
     DynamicSet.setOf(binder(), HealthCheck.class);
   }
 }
@@ -23,7 +23,7 @@ public class HealthCheckFailedException extends Exception {
     this.result = result;
   }
 
-  Map<String, Object> getResult() {
+  public Map<String, Object> getResult() {
     return result;
   }
 
@@ -14,10 +14,17 @@
 
 package com.googlesource.gerrit.plugins.healthcheck;
 
+import com.google.gerrit.extensions.registration.RegistrationHandle;
 import com.google.gerrit.metrics.Counter0;
+import com.google.gerrit.metrics.Counter1;
 import com.google.gerrit.metrics.Description;
+import com.google.gerrit.metrics.Field;
 import com.google.gerrit.metrics.MetricMaker;
 import com.google.gerrit.metrics.Timer0;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheck.Result;
+import com.googlesource.gerrit.plugins.healthcheck.check.LatencyReservoir;
+import java.util.Locale;
+import java.util.function.Supplier;
 
 public class HealthCheckMetrics {
 
@@ -38,6 +45,61 @@ public class HealthCheckMetrics {
             .setUnit("failures"));
   }
 
+  public Counter0 getCpuTimeCounterMetric() {
+    return metricMaker.newCounter(
+        String.format("%s/cpu_time", name),
+        new Description(String.format("%s healthcheck CPU time of the executions (ns)", name))
+            .setCumulative()
+            .setUnit(Description.Units.NANOSECONDS));
+  }
+
+  public Counter0 getAllocatedBytesCounterMetric() {
+    return metricMaker.newCounter(
+        String.format("%s/allocated_bytes", name),
+        new Description(String.format("%s healthcheck heap allocated by the executions", name))
+            .setCumulative()
+            .setUnit(Description.Units.BYTES));
+  }
+
+  /**
+   * Returns the counter of the results of the check, exported by the name of the result in the
+   * status, e.g. {@code result/not_run}.
+   */
+  public Counter1<Result> getResultCounterMetric() {
+    Counter1<String> counter =
+        metricMaker.newCounter(
+            String.format("%s/result", name),
+            new Description(String.format("%s healthcheck executions count by result", name))
+                .setCumulative()
+                .setRate()
+                .setUnit("executions"),
+            Field.ofString("result", (metadataBuilder, fieldValue) -> {})
+                .description("result of the healthcheck execution")
+                .build());
+    return new Counter1<Result>() {
+      @Override
+      public void incrementBy(Result result, long value) {
+        counter.incrementBy(result.name().toLowerCase(Locale.US), value);
+      }
+
+      @Override
+      public void remove() {
+        counter.remove();
+      }
+    };
+  }
+
+  public Counter0 getCoalescedRequestsCounterMetric() {
+    return metricMaker.newCounter(
+        String.format("%s/coalesced_requests", name),
+        new Description(
+                String.format(
+                    "%s healthcheck requests served by a run already in progress count", name))
+            .setCumulative()
+            .setRate()
+            .setUnit("requests"));
+  }
+
   public Timer0 getLatencyMetric() {
     return metricMaker.newTimer(
         String.format("%s/latest_latency", name),
@@ -45,4 +107,102 @@ public class HealthCheckMetrics {
             .setCumulative()
             .setUnit(Description.Units.MILLISECONDS));
   }
+
+  public Timer0 getQueueWaitMetric() {
+    return metricMaker.newTimer(
+        String.format("%s/queue_wait_latency", name),
+        new Description(
+                String.format("%s health check time waiting for an executor thread (ms)", name))
+            .setCumulative()
+            .setUnit(Description.Units.MILLISECONDS));
+  }
+
+  public Timer0 getExecutionLatencyMetric() {
+    return metricMaker.newTimer(
+        String.format("%s/execution_latency", name),
+        new Description(
+                String.format("%s health check execution time on its executor thread (ms)", name))
+            .setCumulative()
+            .setUnit(Description.Units.MILLISECONDS));
+  }
+
+  /**
+   * Returns the latency distribution of the check, exported as a histogram with the given bucket
+   * bounds (ms) and as the p50, p95 and p99 of its most recent latencies.
+   */
+  public LatencyDistribution getLatencyDistributionMetrics(long[] bucketBounds) {
+    Counter1<String> bucketCounter =
+        metricMaker.newCounter(
+            String.format("%s/latency_bucket", name),
+            new Description(
+                    String.format(
+                        "%s healthcheck executions with a latency lower than or equal to the"
+                            + " bucket bound (ms)",
+                        name))
+                .setCumulative()
+                .setUnit("executions"),
+            Field.ofString("le", (metadataBuilder, fieldValue) -> {})
+                .description("upper bound (ms) of the latency bucket, or inf")
+                .build());
+
+    LatencyReservoir reservoir = new LatencyReservoir();
+    registerLatencyPercentileMetric(reservoir, 50);
+    registerLatencyPercentileMetric(reservoir, 95);
+    registerLatencyPercentileMetric(reservoir, 99);
+    return new LatencyDistribution(bucketBounds, bucketCounter, reservoir);
+  }
+
+  private RegistrationHandle registerLatencyPercentileMetric(
+      LatencyReservoir reservoir, int percentile) {
+    return metricMaker.newCallbackMetric(
+        String.format("%s/latency_p%d", name, percentile),
+        Long.class,
+        new Description(
+                String.format(
+                    "%s healthcheck p%d latency of the most recent executions (ms)",
+                    name, percentile))
+            .setGauge()
+            .setUnit(Description.Units.MILLISECONDS),
+        () -> reservoir.quantile(percentile / 100.0));
+  }
+
+  /**
+   * Registers the gauge of the result of the latest execution of the check, encoded with {@link
+   * Result#code()}. The supplier is read when the metrics are collected and must not execute the
+   * check.
+   */
+  public RegistrationHandle registerStateMetric(Supplier<Integer> state) {
+    return metricMaker.newCallbackMetric(
+        String.format("%s/state", name),
+        Integer.class,
+        new Description(
+                String.format(
+                    "%s healthcheck latest result: 0 passed, 1 failed, 2 timeout, 3 not_run,"
+                        + " 4 disabled",
+                    name))
+            .setGauge(),
+        state);
+  }
+
+  public RegistrationHandle registerEffectiveTimeoutMetric(Supplier<Long> effectiveTimeout) {
+    return metricMaker.newCallbackMetric(
+        String.format("%s/effective_timeout", name),
+        Long.class,
+        new Description(String.format("%s healthcheck timeout currently applied (ms)", name))
+            .setGauge()
+            .setUnit(Description.Units.MILLISECONDS),
+        effectiveTimeout);
+  }
+
+  public RegistrationHandle registerZombieExecutionsMetric(Supplier<Integer> zombieExecutions) {
+    return metricMaker.newCallbackMetric(
+        String.format("%s/zombie_executions", name),
+        Integer.class,
+        new Description(
+                String.format(
+                    "%s healthcheck executions still running after having timed out", name))
+            .setGauge()
+            .setUnit("executions"),
+        zombieExecutions);
+  }
 }
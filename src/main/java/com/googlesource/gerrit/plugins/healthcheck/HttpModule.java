@@ -24,15 +24,17 @@ import com.googlesource.gerrit.plugins.healthcheck.filter.HealthCheckStatusFilte
 
 public class HttpModule extends ServletModule {
   private boolean isReplica;
+  private final HealthCheckConfig config;
 
   @Inject
-  public HttpModule(@GerritIsReplica boolean isReplica) {
+  public HttpModule(@GerritIsReplica boolean isReplica, HealthCheckConfig config) {
     this.isReplica = isReplica;
+    this.config = config;
   }
 
   @Override
   protected void configureServlets() {
-    if (isReplica) {
+    if (isReplica || config.isStatusFilterEnabled()) {
       DynamicSet.bind(binder(), AllRequestFilter.class)
           .to(HealthCheckStatusFilter.class)
           .in(Scopes.SINGLETON);
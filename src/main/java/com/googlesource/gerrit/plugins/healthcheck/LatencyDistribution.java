@@ -0,0 +1,64 @@
+// Copyright (C) 2019 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.googlesource.gerrit.plugins.healthcheck;
+
+import com.google.gerrit.metrics.Counter1;
+import com.googlesource.gerrit.plugins.healthcheck.check.LatencyReservoir;
+
+/**
+ * Distribution of the latencies of a check, exported as a histogram with cumulative buckets and
+ * as percentiles of the most recent latencies.
+ *
+ * <p>Recording a latency does not lock: the buckets are counters and the percentiles are only
+ * computed from the reservoir when the metrics are read.
+ */
+public class LatencyDistribution {
+  static final String INFINITE_BUCKET = "inf";
+
+  private final long[] bucketBounds;
+  private final String[] bucketNames;
+  private final Counter1<String> bucketCounter;
+  private final LatencyReservoir reservoir;
+
+  LatencyDistribution(
+      long[] bucketBounds, Counter1<String> bucketCounter, LatencyReservoir reservoir) {
+    this.bucketBounds = bucketBounds;
+    this.bucketNames = new String[bucketBounds.length];
+    for (int i = 0; i < bucketBounds.length; i++) {
+      bucketNames[i] = Long.toString(bucketBounds[i]);
+    }
+    this.bucketCounter = bucketCounter;
+    this.reservoir = reservoir;
+  }
+
+  public void record(long latencyMs) {
+    reservoir.record(latencyMs);
+    for (int i = bucketBounds.length - 1; i >= 0 && latencyMs <= bucketBounds[i]; i--) {
+      bucketCounter.increment(bucketNames[i]);
+    }
+    bucketCounter.increment(INFINITE_BUCKET);
+  }
+
+  /** Returns the number of recent latencies the percentiles are computed from. */
+  public int size() {
+    return reservoir.size();
+  }
+
+  /** Returns the quantile of the recent latencies, the same exported as percentile. */
+  public long quantile(double quantile) {
+    return reservoir.quantile(quantile);
+  }
+}
@@ -15,6 +15,9 @@
 package com.googlesource.gerrit.plugins.healthcheck;
 
 import com.google.inject.AbstractModule;
+import com.googlesource.gerrit.plugins.healthcheck.api.FailFlag;
+import com.googlesource.gerrit.plugins.healthcheck.check.GlobalHealthCheck;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheckScheduler;
 
 public class Module extends AbstractModule {
 
@@ -23,5 +26,11 @@ public class Module extends AbstractModule {
     install(HealthCheckExceptionHook.module());
     install(new HealthCheckSubsystemsModule());
     install(new HealthCheckApiModule());
+    // The listeners are stopped in the reverse order: the executors after the scheduler
+    install(HealthCheckExecutor.module());
+    install(GlobalHealthCheck.module());
+    install(HealthCheckScheduler.module());
+    install(HealthCheckExecutorMetrics.module());
+    install(FailFlag.module());
   }
 }
@@ -0,0 +1,163 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.healthcheck.api;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gerrit.extensions.events.LifecycleListener;
+import com.google.gerrit.lifecycle.LifecycleModule;
+import com.google.inject.Inject;
+import com.google.inject.Module;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.healthcheck.HealthCheckConfig;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * File whose presence makes the node report itself as failed, e.g. before a planned restart.
+ *
+ * <p>The presence of the file is not looked up for every request: it is kept up to date by a
+ * thread watching the parent directory of the file, which also rescans the file periodically for
+ * the filesystems that do not deliver change events, e.g. NFS.
+ */
+@Singleton
+public class FailFlag implements LifecycleListener {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  static final long RESCAN_INTERVAL_MS = 1000L;
+
+  public static Module module() {
+    return new LifecycleModule() {
+      @Override
+      protected void configure() {
+        listener().to(FailFlag.class);
+      }
+    };
+  }
+
+  private final HealthCheckConfig config;
+  private volatile boolean flagExists;
+  private volatile boolean watching;
+  private Path flagPath;
+  private Thread watcher;
+  private volatile boolean stopped;
+
+  @Inject
+  public FailFlag(HealthCheckConfig config) {
+    this.config = config;
+  }
+
+  /**
+   * Returns whether the file exists, as last seen by the watcher. Once the plugin is stopped the
+   * file is not looked up anymore and the last known presence is returned.
+   */
+  public boolean exists() {
+    if (!watching && !stopped) {
+      startWatching();
+    }
+    return flagExists;
+  }
+
+  @Override
+  public void start() {}
+
+  @Override
+  public synchronized void stop() {
+    stopped = true;
+    watching = false;
+    if (watcher != null) {
+      watcher.interrupt();
+      watcher = null;
+    }
+  }
+
+  /**
+   * The watcher is started by the first lookup rather than when the plugin starts, so that the
+   * path of the file is the one configured when the flag is first needed.
+   */
+  private synchronized void startWatching() {
+    if (watching || stopped) {
+      return;
+    }
+    flagPath = Paths.get(config.getFailFileFlagPath()).toAbsolutePath();
+    rescan();
+    watcher =
+        new ThreadFactoryBuilder()
+            .setNameFormat("HealthCheck-FailFlag")
+            .setDaemon(true)
+            .build()
+            .newThread(this::watch);
+    watcher.start();
+    watching = true;
+  }
+
+  private void watch() {
+    Path directory = flagPath.getParent();
+    try (WatchService watchService = directory.getFileSystem().newWatchService()) {
+      WatchKey watchKey = null;
+      while (!Thread.currentThread().isInterrupted()) {
+        if (watchKey == null || !watchKey.isValid()) {
+          watchKey = register(watchService, directory);
+        }
+        WatchKey signalled = watchService.poll(RESCAN_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        if (signalled != null) {
+          signalled.pollEvents();
+          signalled.reset();
+        }
+        rescan();
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      // The plugin is stopping
+    } catch (IOException e) {
+      logger.atWarning().withCause(e).log(
+          "Cannot watch %s: rescanning it every %d ms", directory, RESCAN_INTERVAL_MS);
+      rescanPeriodically();
+    }
+  }
+
+  private WatchKey register(WatchService watchService, Path directory) throws IOException {
+    try {
+      return directory.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+    } catch (NoSuchFileException e) {
+      // The directory can be created later on: the registration is retried at the next rescan
+      return null;
+    }
+  }
+
+  private void rescanPeriodically() {
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        TimeUnit.MILLISECONDS.sleep(RESCAN_INTERVAL_MS);
+        rescan();
+      }
+    } catch (InterruptedException e) {
+      // The plugin is stopping
+    }
+  }
+
+  private void rescan() {
+    flagExists = Files.isRegularFile(flagPath);
+  }
+}
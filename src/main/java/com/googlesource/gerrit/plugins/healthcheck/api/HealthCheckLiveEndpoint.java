@@ -0,0 +1,52 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.healthcheck.api;
+
+import com.google.gerrit.extensions.restapi.Response;
+import com.google.gerrit.extensions.restapi.RestReadView;
+import com.google.gerrit.server.config.ConfigResource;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.healthcheck.HealthCheckFailedException;
+import java.util.Map;
+
+/**
+ * Liveness endpoint: it only confirms that the node is able to serve requests and that the fail
+ * flag file is absent, without executing any check. The status endpoint remains the readiness
+ * signal.
+ */
+@Singleton
+public class HealthCheckLiveEndpoint implements RestReadView<ConfigResource> {
+  public static final String LIVE = "ok";
+
+  private final FailFlag failFlag;
+
+  @Inject
+  public HealthCheckLiveEndpoint(FailFlag failFlag) {
+    this.failFlag = failFlag;
+  }
+
+  @Override
+  public Response<String> apply(ConfigResource resource) throws HealthCheckFailedException {
+    if (!isLive()) {
+      throw new HealthCheckFailedException(Map.of("reason", "Fail Flag File exists"));
+    }
+    return Response.ok(LIVE);
+  }
+
+  public boolean isLive() {
+    return !failFlag.exists();
+  }
+}
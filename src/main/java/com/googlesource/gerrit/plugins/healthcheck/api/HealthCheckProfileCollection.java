@@ -0,0 +1,60 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.healthcheck.api;
+
+import com.google.gerrit.extensions.registration.DynamicMap;
+import com.google.gerrit.extensions.restapi.ChildCollection;
+import com.google.gerrit.extensions.restapi.IdString;
+import com.google.gerrit.extensions.restapi.ResourceNotFoundException;
+import com.google.gerrit.extensions.restapi.RestView;
+import com.google.gerrit.server.config.ConfigResource;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheckProfiles;
+
+/** The readiness profiles defined in the configuration. */
+@Singleton
+public class HealthCheckProfileCollection
+    implements ChildCollection<ConfigResource, HealthCheckProfileResource> {
+  private final HealthCheckProfiles profiles;
+  private final DynamicMap<RestView<HealthCheckProfileResource>> views;
+
+  @Inject
+  HealthCheckProfileCollection(
+      HealthCheckProfiles profiles, DynamicMap<RestView<HealthCheckProfileResource>> views) {
+    this.profiles = profiles;
+    this.views = views;
+  }
+
+  @Override
+  public RestView<ConfigResource> list() throws ResourceNotFoundException {
+    throw new ResourceNotFoundException();
+  }
+
+  @Override
+  public HealthCheckProfileResource parse(ConfigResource parent, IdString id)
+      throws ResourceNotFoundException {
+    String name = id.get();
+    if (!profiles.exists(name)) {
+      throw new ResourceNotFoundException(id);
+    }
+    return new HealthCheckProfileResource(name);
+  }
+
+  @Override
+  public DynamicMap<RestView<HealthCheckProfileResource>> views() {
+    return views;
+  }
+}
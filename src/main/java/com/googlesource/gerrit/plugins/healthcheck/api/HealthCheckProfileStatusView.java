@@ -0,0 +1,38 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.healthcheck.api;
+
+import com.google.gerrit.extensions.restapi.Response;
+import com.google.gerrit.extensions.restapi.RestReadView;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.util.Map;
+
+/** Status of the checks of a readiness profile. */
+@Singleton
+public class HealthCheckProfileStatusView implements RestReadView<HealthCheckProfileResource> {
+  private final HealthCheckStatusEndpoint statusEndpoint;
+
+  @Inject
+  HealthCheckProfileStatusView(HealthCheckStatusEndpoint statusEndpoint) {
+    this.statusEndpoint = statusEndpoint;
+  }
+
+  @Override
+  public Response<Map<String, Object>> apply(HealthCheckProfileResource resource)
+      throws Exception {
+    return statusEndpoint.applyToProfile(resource.getName());
+  }
+}
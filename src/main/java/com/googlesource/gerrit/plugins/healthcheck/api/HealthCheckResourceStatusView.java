@@ -0,0 +1,38 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.healthcheck.api;
+
+import com.google.gerrit.extensions.restapi.Response;
+import com.google.gerrit.extensions.restapi.RestReadView;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.util.Map;
+import java.util.Set;
+
+/** Status of a single check. */
+@Singleton
+public class HealthCheckResourceStatusView implements RestReadView<HealthCheckResource> {
+  private final HealthCheckStatusEndpoint statusEndpoint;
+
+  @Inject
+  HealthCheckResourceStatusView(HealthCheckStatusEndpoint statusEndpoint) {
+    this.statusEndpoint = statusEndpoint;
+  }
+
+  @Override
+  public Response<Map<String, Object>> apply(HealthCheckResource resource) throws Exception {
+    return statusEndpoint.applyToChecks(Set.of(resource.getName()));
+  }
+}
@@ -0,0 +1,68 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.healthcheck.api;
+
+import com.google.gerrit.extensions.registration.DynamicMap;
+import com.google.gerrit.extensions.restapi.ChildCollection;
+import com.google.gerrit.extensions.restapi.IdString;
+import com.google.gerrit.extensions.restapi.ResourceNotFoundException;
+import com.google.gerrit.extensions.restapi.RestView;
+import com.google.gerrit.server.config.ConfigResource;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.healthcheck.check.GlobalHealthCheck;
+
+/**
+ * The {@code status} collection: listing it returns the status of all the checks, or of the ones
+ * selected with the {@code checks} parameter, while its members are the individual checks.
+ */
+@Singleton
+public class HealthCheckStatusCollection
+    implements ChildCollection<ConfigResource, HealthCheckResource> {
+  private final Provider<HealthCheckStatusView> list;
+  private final GlobalHealthCheck healthChecks;
+  private final DynamicMap<RestView<HealthCheckResource>> views;
+
+  @Inject
+  HealthCheckStatusCollection(
+      Provider<HealthCheckStatusView> list,
+      GlobalHealthCheck healthChecks,
+      DynamicMap<RestView<HealthCheckResource>> views) {
+    this.list = list;
+    this.healthChecks = healthChecks;
+    this.views = views;
+  }
+
+  @Override
+  public RestView<ConfigResource> list() {
+    return list.get();
+  }
+
+  @Override
+  public HealthCheckResource parse(ConfigResource parent, IdString id)
+      throws ResourceNotFoundException {
+    String name = id.get();
+    if (!healthChecks.checkNames().contains(name)) {
+      throw new ResourceNotFoundException(id);
+    }
+    return new HealthCheckResource(name);
+  }
+
+  @Override
+  public DynamicMap<RestView<HealthCheckResource>> views() {
+    return views;
+  }
+}
@@ -14,45 +14,206 @@
 
 package com.googlesource.gerrit.plugins.healthcheck.api;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.gerrit.extensions.restapi.*;
+import com.google.gerrit.metrics.MetricMaker;
 import com.google.gerrit.server.config.ConfigResource;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.googlesource.gerrit.plugins.healthcheck.HealthCheckConfig;
 import com.googlesource.gerrit.plugins.healthcheck.HealthCheckFailedException;
+import com.googlesource.gerrit.plugins.healthcheck.HealthCheckMetrics;
+import com.googlesource.gerrit.plugins.healthcheck.LatencyDistribution;
 import com.googlesource.gerrit.plugins.healthcheck.check.GlobalHealthCheck;
 import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheck;
 import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheck.Result;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStream;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheckProfiles;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheckScheduler;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import javax.servlet.http.HttpServletResponse;
 
 @Singleton
 public class HealthCheckStatusEndpoint implements RestReadView<ConfigResource> {
+  /** Name of the metrics of the time spent serving the status requests. */
+  public static final String STATUS_ENDPOINT_METRICS = "status_endpoint";
 
   private final GlobalHealthCheck healthChecks;
+  private final HealthCheckScheduler scheduler;
+  private final HealthCheckProfiles profiles;
 
-  private final String failedFileFlagPath;
+  private final FailFlag failFlag;
+  private final LatencyDistribution servingLatency;
+  private volatile StatusResult latestResult;
 
   @Inject
-  public HealthCheckStatusEndpoint(GlobalHealthCheck healthChecks, HealthCheckConfig config) {
+  public HealthCheckStatusEndpoint(
+      GlobalHealthCheck healthChecks,
+      HealthCheckScheduler scheduler,
+      HealthCheckProfiles profiles,
+      FailFlag failFlag,
+      HealthCheckConfig config,
+      MetricMaker metricMaker) {
     this.healthChecks = healthChecks;
-    this.failedFileFlagPath = config.getFailFileFlagPath();
+    this.scheduler = scheduler;
+    this.profiles = profiles;
+    this.failFlag = failFlag;
+    this.servingLatency =
+        new HealthCheckMetrics(metricMaker, STATUS_ENDPOINT_METRICS)
+            .getLatencyDistributionMetrics(config.getLatencyBuckets(STATUS_ENDPOINT_METRICS));
   }
 
   @Override
   public Response<Map<String, Object>> apply(ConfigResource resource)
       throws AuthException, BadRequestException, ResourceConflictException, Exception {
-    if (failFlagFileExists()) {
+    return applyToChecks(Collections.emptySet());
+  }
+
+  /**
+   * Returns the status of the checks with the given names only, or of all the checks when the set
+   * is empty.
+   */
+  public Response<Map<String, Object>> applyToChecks(Set<String> checkNames)
+      throws BadRequestException, HealthCheckFailedException {
+    long ts = System.currentTimeMillis();
+    try {
+      if (failFlag.exists()) {
+        throw new HealthCheckFailedException(Map.of("reason", "Fail Flag File exists"));
+      }
+      checkRegistered(checkNames);
+      return toResponse(
+          scheduler.isEnabled()
+              ? scheduler.getLatestStatus(checkNames)
+              : healthChecks.run(checkNames));
+    } finally {
+      servingLatency.record(System.currentTimeMillis() - ts);
+    }
+  }
+
+  /**
+   * Returns the latest status of the scheduled checks with the given names only, or of all the
+   * checks when the set is empty. Unlike {@link #applyToChecks(Set)} it does not serve a status
+   * request, hence its latency is not recorded.
+   */
+  public Response<Map<String, Object>> latestScheduledStatus(Set<String> checkNames)
+      throws BadRequestException, HealthCheckFailedException {
+    if (failFlag.exists()) {
       throw new HealthCheckFailedException(Map.of("reason", "Fail Flag File exists"));
     }
-    HealthCheck.StatusSummary globalHealthCheckStatus = healthChecks.run();
+    checkRegistered(checkNames);
+    return toResponse(scheduler.getLatestStatus(checkNames));
+  }
+
+  /**
+   * Same as {@link #applyToChecks(Set)} but with the status encoded by {@link StatusCborEncoder},
+   * including when the node is not healthy.
+   */
+  public Response<BinaryResult> applyToChecksCbor(Set<String> checkNames)
+      throws BadRequestException {
+    Map<String, Object> result;
+    int statusCode;
+    try {
+      Response<Map<String, Object>> response = applyToChecks(checkNames);
+      result = response.value();
+      statusCode = response.statusCode();
+    } catch (HealthCheckFailedException e) {
+      result = e.getResult();
+      statusCode = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+    }
+    return Response.withStatusCode(
+        statusCode,
+        BinaryResult.create(StatusCborEncoder.encode(result))
+            .setContentType(StatusCborEncoder.CBOR_CONTENT_TYPE));
+  }
+
+  /**
+   * Same as {@link #apply(ConfigResource)} but without blocking the calling thread while the
+   * checks are running. The returned future fails with {@link HealthCheckFailedException} when
+   * the node is not healthy.
+   */
+  public ListenableFuture<Response<Map<String, Object>>> applyAsync() {
+    return applyToChecksAsync(Collections.emptySet());
+  }
+
+  /** Same as {@link #applyToChecks(Set)} but without blocking the calling thread. */
+  public ListenableFuture<Response<Map<String, Object>>> applyToChecksAsync(
+      Set<String> checkNames) {
+    long ts = System.currentTimeMillis();
+    ListenableFuture<Response<Map<String, Object>>> response = startChecks(checkNames);
+    response.addListener(
+        () -> servingLatency.record(System.currentTimeMillis() - ts),
+        MoreExecutors.directExecutor());
+    return response;
+  }
+
+  private ListenableFuture<Response<Map<String, Object>>> startChecks(Set<String> checkNames) {
+    if (failFlag.exists()) {
+      return Futures.immediateFailedFuture(
+          new HealthCheckFailedException(Map.of("reason", "Fail Flag File exists")));
+    }
+    try {
+      checkRegistered(checkNames);
+    } catch (BadRequestException e) {
+      return Futures.immediateFailedFuture(e);
+    }
+    ListenableFuture<HealthCheck.StatusSummary> status =
+        scheduler.isEnabled()
+            ? Futures.immediateFuture(scheduler.getLatestStatus(checkNames))
+            : healthChecks.runAsync(checkNames);
+    return Futures.transformAsync(
+        status, s -> Futures.immediateFuture(toResponse(s)), MoreExecutors.directExecutor());
+  }
+
+  /** Returns the status of the checks of a profile, aggregated with the policy of the profile. */
+  public Response<Map<String, Object>> applyToProfile(String profileName)
+      throws HealthCheckFailedException {
+    long ts = System.currentTimeMillis();
+    try {
+      if (failFlag.exists()) {
+        throw new HealthCheckFailedException(Map.of("reason", "Fail Flag File exists"));
+      }
+      return toResponse(profiles.evaluate(profileName));
+    } finally {
+      servingLatency.record(System.currentTimeMillis() - ts);
+    }
+  }
+
+  private void checkRegistered(Set<String> checkNames) throws BadRequestException {
+    if (checkNames.isEmpty()) {
+      return;
+    }
+    Set<String> unknownChecks = new TreeSet<>(checkNames);
+    unknownChecks.removeAll(healthChecks.checkNames());
+    if (!unknownChecks.isEmpty()) {
+      throw new BadRequestException("Unknown checks: " + String.join(", ", unknownChecks));
+    }
+  }
 
-    Map<String, Object> result = globalHealthCheckStatus.subChecks();
-    result.put("ts", globalHealthCheckStatus.ts());
-    result.put("elapsed", globalHealthCheckStatus.elapsed());
+  /**
+   * Returns the response for the given status of the checks, without executing any check, failing
+   * with {@link HealthCheckFailedException} when the status is not healthy.
+   */
+  public Response<Map<String, Object>> toResponse(
+      HealthCheck.StatusSummary globalHealthCheckStatus) throws HealthCheckFailedException {
+    // The same status is returned to all the requests served by a run of the checks, or by a
+    // snapshot of the scheduler: the result is built only once per status and can be cached by
+    // callers based on its identity.
+    StatusResult latest = latestResult;
+    Map<String, Object> result;
+    if (latest != null && latest.status() == globalHealthCheckStatus) {
+      result = latest.result();
+    } else {
+      Map<String, Object> newResult = new HashMap<>(globalHealthCheckStatus.subChecks());
+      newResult.put("ts", globalHealthCheckStatus.ts());
+      newResult.put("elapsed", globalHealthCheckStatus.elapsed());
+      result = Collections.unmodifiableMap(newResult);
+      latestResult = new StatusResult(globalHealthCheckStatus, result);
+    }
     return Response.withStatusCode(getHTTPResultCode(globalHealthCheckStatus, result), result);
   }
 
@@ -65,12 +226,5 @@ public class HealthCheckStatusEndpoint implements RestReadView<ConfigResource> {
     return HttpServletResponse.SC_OK;
   }
 
-  private boolean failFlagFileExists() {
-    File file = new File(failedFileFlagPath);
-    try (InputStream targetStream = new FileInputStream(file)) {
-      return true;
-    } catch (Exception e) {
-      return false;
-    }
-  }
+  private record StatusResult(HealthCheck.StatusSummary status, Map<String, Object> result) {}
 }
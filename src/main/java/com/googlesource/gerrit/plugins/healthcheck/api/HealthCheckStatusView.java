@@ -0,0 +1,59 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.healthcheck.api;
+
+import com.google.common.base.Splitter;
+import com.google.gerrit.extensions.restapi.Response;
+import com.google.gerrit.extensions.restapi.RestReadView;
+import com.google.gerrit.server.config.ConfigResource;
+import com.google.inject.Inject;
+import java.util.HashSet;
+import java.util.Set;
+import org.kohsuke.args4j.Option;
+
+/** Status of all the checks, or of the subset selected with the {@code checks} parameter. */
+public class HealthCheckStatusView implements RestReadView<ConfigResource> {
+  public enum Format {
+    JSON,
+    CBOR
+  }
+
+  private final HealthCheckStatusEndpoint statusEndpoint;
+  private final Set<String> checkNames = new HashSet<>();
+
+  @Option(name = "--format", usage = "format of the status: JSON (default) or CBOR")
+  private Format format = Format.JSON;
+
+  @Option(
+      name = "--checks",
+      metaVar = "CHECK",
+      usage = "comma separated names of the checks to evaluate, all of them when not specified")
+  public void addChecks(String checks) {
+    Splitter.on(',').trimResults().omitEmptyStrings().split(checks).forEach(checkNames::add);
+  }
+
+  @Inject
+  HealthCheckStatusView(HealthCheckStatusEndpoint statusEndpoint) {
+    this.statusEndpoint = statusEndpoint;
+  }
+
+  @Override
+  public Response<?> apply(ConfigResource resource) throws Exception {
+    return switch (format) {
+      case JSON -> statusEndpoint.applyToChecks(checkNames);
+      case CBOR -> statusEndpoint.applyToChecksCbor(checkNames);
+    };
+  }
+}
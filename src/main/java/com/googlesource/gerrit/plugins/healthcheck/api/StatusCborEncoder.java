@@ -0,0 +1,135 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.healthcheck.api;
+
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheck.StatusSummary;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compact CBOR (RFC 8949) encoding of the status, for clients scraping it at high frequency.
+ *
+ * <p>Instead of a map of maps, the status is encoded as {@code [ts, elapsed, names, checks]} (plus
+ * the {@code reason} when the status is forced by the fail flag file): {@code names} is the sorted
+ * array of the check names and {@code checks} the array of the results of the checks in the same
+ * order, each one as {@code [result, ts, elapsed]} (plus the {@code age} of cached results). The
+ * check names are therefore written once and the results are identified by their index.
+ *
+ * <p>When the cost of the execution of a check is known, its result is followed by {@code age},
+ * {@code cpuTimeNs} and {@code allocatedBytes}, each one encoded as {@code null} when missing, so
+ * that the position of the elements never changes.
+ */
+public final class StatusCborEncoder {
+  public static final String CBOR_CONTENT_TYPE = "application/cbor";
+
+  private static final int UNSIGNED_INTEGER = 0;
+  private static final int NEGATIVE_INTEGER = 1;
+  private static final int TEXT_STRING = 3;
+  private static final int ARRAY = 4;
+  private static final int NULL = 0xf6;
+
+  public static byte[] encode(Map<String, Object> status) {
+    Map<String, StatusSummary> checks = new TreeMap<>();
+    status.forEach(
+        (name, value) -> {
+          if (value instanceof StatusSummary check) {
+            checks.put(name, check);
+          }
+        });
+    String reason = status.get("reason") instanceof String r ? r : null;
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream(32 + 24 * checks.size());
+    writeHeader(out, ARRAY, reason == null ? 4 : 5);
+    writeLong(out, longValue(status.get("ts")));
+    writeLong(out, longValue(status.get("elapsed")));
+    writeHeader(out, ARRAY, checks.size());
+    checks.keySet().forEach(name -> writeText(out, name));
+    writeHeader(out, ARRAY, checks.size());
+    for (StatusSummary check : checks.values()) {
+      boolean hasCost = check.cpuTimeNs() != null || check.allocatedBytes() != null;
+      writeHeader(out, ARRAY, hasCost ? 6 : check.age() == null ? 3 : 4);
+      writeHeader(out, UNSIGNED_INTEGER, check.result().code());
+      writeLong(out, check.ts());
+      writeLong(out, check.elapsed());
+      if (hasCost) {
+        writeNullableLong(out, check.age());
+        writeNullableLong(out, check.cpuTimeNs());
+        writeNullableLong(out, check.allocatedBytes());
+      } else if (check.age() != null) {
+        writeLong(out, check.age());
+      }
+    }
+    if (reason != null) {
+      writeText(out, reason);
+    }
+    return out.toByteArray();
+  }
+
+  private static long longValue(Object value) {
+    return value instanceof Number number ? number.longValue() : 0L;
+  }
+
+  private static void writeLong(ByteArrayOutputStream out, long value) {
+    if (value >= 0) {
+      writeHeader(out, UNSIGNED_INTEGER, value);
+    } else {
+      writeHeader(out, NEGATIVE_INTEGER, -1 - value);
+    }
+  }
+
+  private static void writeNullableLong(ByteArrayOutputStream out, Long value) {
+    if (value == null) {
+      out.write(NULL);
+    } else {
+      writeLong(out, value);
+    }
+  }
+
+  private static void writeText(ByteArrayOutputStream out, String text) {
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    writeHeader(out, TEXT_STRING, bytes.length);
+    out.write(bytes, 0, bytes.length);
+  }
+
+  /** Writes the initial byte of a data item with its argument in the shortest form. */
+  private static void writeHeader(ByteArrayOutputStream out, int majorType, long argument) {
+    int initialByte = majorType << 5;
+    if (argument < 24) {
+      out.write(initialByte | (int) argument);
+    } else if (argument < 0x100) {
+      out.write(initialByte | 24);
+      out.write((int) argument);
+    } else if (argument < 0x10000) {
+      out.write(initialByte | 25);
+      writeBigEndian(out, argument, 2);
+    } else if (argument < 0x100000000L) {
+      out.write(initialByte | 26);
+      writeBigEndian(out, argument, 4);
+    } else {
+      out.write(initialByte | 27);
+      writeBigEndian(out, argument, 8);
+    }
+  }
+
+  private static void writeBigEndian(ByteArrayOutputStream out, long value, int length) {
+    for (int shift = (length - 1) * 8; shift >= 0; shift -= 8) {
+      out.write((int) (value >>> shift));
+    }
+  }
+
+  private StatusCborEncoder() {}
+}
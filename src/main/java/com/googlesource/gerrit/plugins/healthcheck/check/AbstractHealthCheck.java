@@ -14,44 +14,113 @@
 
 package com.googlesource.gerrit.plugins.healthcheck.check;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.gerrit.metrics.Counter0;
+import com.google.gerrit.metrics.Counter1;
 import com.google.gerrit.metrics.MetricMaker;
 import com.google.gerrit.metrics.Timer0;
 import com.googlesource.gerrit.plugins.healthcheck.HealthCheckConfig;
+import com.googlesource.gerrit.plugins.healthcheck.HealthCheckExecutor;
 import com.googlesource.gerrit.plugins.healthcheck.HealthCheckMetrics;
+import com.googlesource.gerrit.plugins.healthcheck.LatencyDistribution;
 import java.util.Collections;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
 
 public abstract class AbstractHealthCheck implements HealthCheck {
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  private static final int ADAPTIVE_TIMEOUT_MIN_SAMPLES = 20;
   private final long timeout;
+  private final boolean adaptiveTimeout;
+  private final int timeoutMultiplier;
+  private final long minTimeout;
+  private final long cacheTtl;
+  private final long staleTtl;
+  private final boolean verbose;
   private final String name;
   private final ListeningExecutorService executor;
+  private final AtomicInteger zombieExecutions = new AtomicInteger();
+  private final LongSupplier clock;
+  private final CircuitBreaker circuitBreaker;
+  private volatile StatusSummary latestFailure;
+  private volatile StatusSummary cachedStatus;
+  private Execution pendingRefresh;
   protected volatile StatusSummary latestStatus;
   protected HealthCheckConfig config;
 
   protected final Counter0 failureCounterMetric;
+  protected final Counter1<Result> resultCounterMetric;
   protected final Timer0 latencyMetric;
+  protected final Timer0 queueWaitMetric;
+  protected final Timer0 executionLatencyMetric;
+  protected final Counter0 cpuTimeMetric;
+  protected final Counter0 allocatedBytesMetric;
+  protected final LatencyDistribution latencyDistribution;
 
   protected AbstractHealthCheck(
       ListeningExecutorService executor,
       HealthCheckConfig config,
       String name,
       MetricMaker metricMaker) {
-    this.executor = executor;
+    this(executor, config, name, metricMaker, System::currentTimeMillis);
+  }
+
+  /**
+   * Creates a check whose timestamps, timeouts, cache TTLs and circuit breaker backoff are
+   * measured with the given clock (epoch millis).
+   */
+  @VisibleForTesting
+  protected AbstractHealthCheck(
+      ListeningExecutorService executor,
+      HealthCheckConfig config,
+      String name,
+      MetricMaker metricMaker,
+      LongSupplier clock) {
+    this.clock = clock;
+    this.executor =
+        executor instanceof HealthCheckExecutor checkExecutor
+            ? checkExecutor.forCheck(name)
+            : executor;
     this.name = name;
     this.timeout = config.getTimeout(name);
+    this.adaptiveTimeout = config.isAdaptiveTimeout(name);
+    this.timeoutMultiplier = config.getTimeoutMultiplier(name);
+    this.minTimeout = config.getMinTimeout(name);
+    this.cacheTtl = config.getCacheTtl(name);
+    this.staleTtl = config.getStaleTtl(name);
+    this.verbose = config.isVerbose();
     this.config = config;
     this.latestStatus = StatusSummary.INITIAL_STATUS;
+    this.circuitBreaker =
+        new CircuitBreaker(
+            name,
+            config.getFailureThreshold(name),
+            config.getBackoff(name),
+            config.getMaxBackoff(name));
 
     HealthCheckMetrics healthCheckMetrics = new HealthCheckMetrics(metricMaker, name);
     this.failureCounterMetric = healthCheckMetrics.getFailureCounterMetric();
+    this.resultCounterMetric = healthCheckMetrics.getResultCounterMetric();
     this.latencyMetric = healthCheckMetrics.getLatencyMetric();
+    this.queueWaitMetric = healthCheckMetrics.getQueueWaitMetric();
+    this.executionLatencyMetric = healthCheckMetrics.getExecutionLatencyMetric();
+    this.cpuTimeMetric = healthCheckMetrics.getCpuTimeCounterMetric();
+    this.allocatedBytesMetric = healthCheckMetrics.getAllocatedBytesCounterMetric();
+    this.latencyDistribution =
+        healthCheckMetrics.getLatencyDistributionMetrics(config.getLatencyBuckets(name));
+    healthCheckMetrics.registerZombieExecutionsMetric(zombieExecutions::get);
+    healthCheckMetrics.registerEffectiveTimeoutMetric(this::effectiveTimeout);
+    healthCheckMetrics.registerStateMetric(() -> latestStatus.result().code());
   }
 
   @Override
@@ -61,57 +130,302 @@ public abstract class AbstractHealthCheck implements HealthCheck {
 
   @Override
   public StatusSummary run() {
-    StatusSummary checkStatusSummary;
-    boolean enabled = config.healthCheckEnabled(name);
-    final long ts = System.currentTimeMillis();
-    ListenableFuture<StatusSummary> resultFuture =
-        executor.submit(
+    return await(start());
+  }
+
+  /**
+   * Submits the check to the executor without waiting for its result, so that multiple checks can
+   * be started at once and then collected with {@link #await(Execution)}.
+   */
+  public Execution start() {
+    final long ts = clock.getAsLong();
+
+    StatusSummary cached = cachedStatus;
+    if (cached != null) {
+      long age = ts - cached.ts();
+      if (age < cacheTtl) {
+        return Execution.cached(ts, cached.withAge(age));
+      }
+      if (age < staleTtl) {
+        refreshInBackground(ts);
+        return Execution.cached(ts, cached.withAge(age));
+      }
+    }
+    return execute(ts);
+  }
+
+  /**
+   * Executes the check in the background, unless a refresh is already in progress, so that the
+   * stale result can be returned straight away. The refresh is not awaited by anyone: it is
+   * collected when it completes or, if it hangs, by the first call after its deadline.
+   */
+  private synchronized void refreshInBackground(long ts) {
+    if (pendingRefresh != null) {
+      if (ts < pendingRefresh.deadline()) {
+        return;
+      }
+      Execution timedOutRefresh = pendingRefresh;
+      pendingRefresh = null;
+      await(timedOutRefresh);
+    }
+
+    Execution refresh = execute(ts);
+    pendingRefresh = refresh;
+    refresh
+        .future()
+        .addListener(
             () -> {
-              Result healthy;
-              try {
-                healthy = enabled ? doCheck() : Result.DISABLED;
-              } catch (Exception e) {
-                logger.atWarning().withCause(e).log("Check %s failed", name);
-                healthy = Result.FAILED;
-              }
-              Long elapsed = System.currentTimeMillis() - ts;
-              StatusSummary statusSummary =
-                  new StatusSummary(healthy, ts, elapsed, Collections.emptyMap());
-              if (statusSummary.isFailure()) {
-                failureCounterMetric.increment();
+              if (completeRefresh(refresh)) {
+                await(refresh);
               }
-              latencyMetric.record(elapsed, TimeUnit.MILLISECONDS);
-              return statusSummary;
-            });
+            },
+            MoreExecutors.directExecutor());
+  }
+
+  private synchronized boolean completeRefresh(Execution refresh) {
+    if (pendingRefresh != refresh) {
+      return false;
+    }
+    pendingRefresh = null;
+    return true;
+  }
+
+  private Execution execute(long ts) {
+    boolean enabled = config.healthCheckEnabled(name);
+
+    CircuitBreaker.Admission admission = circuitBreaker.admit(ts);
+    if (admission == CircuitBreaker.Admission.REJECTED) {
+      // The checked subsystem is already struggling: do not add load to it while it recovers
+      failureCounterMetric.increment();
+      return Execution.completed(
+          ts,
+          admission,
+          new StatusSummary(latestFailure.result(), ts, 0L, Collections.emptyMap()));
+    }
+
+    int zombies = zombieExecutions.get();
+    if (zombies > 0) {
+      // Submitting again a check whose previous executions are stuck would only pile up more
+      // stuck threads in the executor
+      logger.atWarning().log(
+          "Check %s not executed: %d previous executions still running after timing out",
+          name, zombies);
+      failureCounterMetric.increment();
+      return Execution.completed(
+          ts, admission, new StatusSummary(Result.TIMEOUT, ts, 0L, Collections.emptyMap()));
+    }
+
+    AtomicReference<ExecutionState> state = new AtomicReference<>(ExecutionState.QUEUED);
+    ListenableFuture<StatusSummary> resultFuture;
     try {
-      checkStatusSummary = resultFuture.get(timeout, TimeUnit.MILLISECONDS);
+      resultFuture =
+          executor.submit(
+              () -> {
+                if (!state.compareAndSet(ExecutionState.QUEUED, ExecutionState.RUNNING)) {
+                  return null;
+                }
+                long started = clock.getAsLong();
+                queueWaitMetric.record(started - ts, TimeUnit.MILLISECONDS);
+                try {
+                  return doRun(enabled, ts);
+                } finally {
+                  executionLatencyMetric.record(
+                      clock.getAsLong() - started, TimeUnit.MILLISECONDS);
+                  if (!state.compareAndSet(ExecutionState.RUNNING, ExecutionState.DONE)) {
+                    zombieExecutions.decrementAndGet();
+                  }
+                }
+              });
+    } catch (RejectedExecutionException e) {
+      // The lane of the check is saturated by previous executions that are still running
+      logger.atWarning().withCause(e).log("Check %s rejected by its executor", name);
+      failureCounterMetric.increment();
+      return Execution.completed(
+          ts, admission, new StatusSummary(Result.FAILED, ts, 0L, Collections.emptyMap()));
+    }
+    return new Execution(ts, ts + effectiveTimeout(), admission, false, resultFuture, state);
+  }
+
+  private StatusSummary doRun(boolean enabled, long ts) {
+    ExecutionCost startCost = ExecutionCost.ofCurrentThread();
+    Result healthy;
+    try {
+      healthy = enabled ? doCheck() : Result.DISABLED;
+    } catch (Exception e) {
+      logger.atWarning().withCause(e).log("Check %s failed", name);
+      healthy = Result.FAILED;
+    }
+    Long elapsed = clock.getAsLong() - ts;
+    ExecutionCost cost = startCost.untilNow();
+    recordCost(cost);
+    StatusSummary statusSummary = new StatusSummary(healthy, ts, elapsed, Collections.emptyMap());
+    if (verbose) {
+      statusSummary = statusSummary.withCost(cost.cpuTimeNs(), cost.allocatedBytes());
+    }
+    if (statusSummary.isFailure()) {
+      failureCounterMetric.increment();
+    }
+    recordLatency(elapsed);
+    return statusSummary;
+  }
+
+  /**
+   * Returns the timeout applied to the next execution of the check. In adaptive mode it is a
+   * multiple of the p99 of the recent latencies of the check, the one exported by its latency
+   * distribution, clamped between {@code minTimeout} and the configured {@code timeout}.
+   */
+  public long effectiveTimeout() {
+    if (!adaptiveTimeout || latencyDistribution.size() < ADAPTIVE_TIMEOUT_MIN_SAMPLES) {
+      return timeout;
+    }
+    long adaptive = timeoutMultiplier * latencyDistribution.quantile(0.99);
+    return Math.max(Math.min(minTimeout, timeout), Math.min(adaptive, timeout));
+  }
+
+  /**
+   * Waits for the result of a started execution. The check timeout is counted from the time the
+   * execution was started, not from the time this method is called.
+   */
+  public StatusSummary await(Execution execution) {
+    return await(execution, Long.MAX_VALUE);
+  }
+
+  /**
+   * Waits for the result of a started execution, giving up at the given deadline (epoch millis)
+   * if it comes before the timeout of the check.
+   */
+  public StatusSummary await(Execution execution, long deadline) {
+    StatusSummary checkStatusSummary;
+    ListenableFuture<StatusSummary> resultFuture = execution.future();
+    try {
+      long remaining = Math.min(execution.deadline(), deadline) - clock.getAsLong();
+      checkStatusSummary = resultFuture.get(Math.max(0L, remaining), TimeUnit.MILLISECONDS);
     } catch (TimeoutException e) {
       checkStatusSummary =
-          handleError(
-              resultFuture, ts, e, String.format("Check %s timed out", name), Result.TIMEOUT);
+          handleError(execution, e, String.format("Check %s timed out", name), Result.TIMEOUT);
     } catch (InterruptedException | ExecutionException e) {
       checkStatusSummary =
           handleError(
-              resultFuture,
-              ts,
+              execution,
               e,
               String.format("Check %s failed while waiting for its future result", name),
               Result.FAILED);
     }
+    if (!execution.cached) {
+      if (checkStatusSummary.isFailure()) {
+        latestFailure = checkStatusSummary;
+      }
+      if (execution.admission != CircuitBreaker.Admission.REJECTED) {
+        cachedStatus = checkStatusSummary;
+      }
+      circuitBreaker.onResult(
+          execution.admission, checkStatusSummary.isFailure(), clock.getAsLong());
+      resultCounterMetric.increment(checkStatusSummary.result());
+    }
+    latestStatus = checkStatusSummary;
     return checkStatusSummary;
   }
 
   private StatusSummary handleError(
-      ListenableFuture<StatusSummary> future, long ts, Exception e, String message, Result result) {
-    future.cancel(true);
-    Long elapsed = System.currentTimeMillis() - ts;
+      Execution execution, Exception e, String message, Result result) {
+    abandon(execution);
+    Long elapsed = clock.getAsLong() - execution.ts();
     logger.atWarning().withCause(e).log("%s", message);
     StatusSummary checkStatusSummary =
-        new StatusSummary(result, ts, elapsed, Collections.emptyMap());
+        new StatusSummary(result, execution.ts(), elapsed, Collections.emptyMap());
     failureCounterMetric.increment();
-    latencyMetric.record(elapsed, TimeUnit.MILLISECONDS);
+    recordLatency(elapsed);
     return checkStatusSummary;
   }
 
+  /**
+   * Records the result reported for the check by a run that did not execute it, because one of its
+   * prerequisites did not pass, or that gave up on it when the budget of the run expired.
+   */
+  void recordSkipped(StatusSummary status) {
+    resultCounterMetric.increment(status.result());
+    latestStatus = status;
+  }
+
+  private void recordCost(ExecutionCost cost) {
+    if (cost.cpuTimeNs() != null) {
+      cpuTimeMetric.incrementBy(cost.cpuTimeNs());
+    }
+    if (cost.allocatedBytes() != null) {
+      allocatedBytesMetric.incrementBy(cost.allocatedBytes());
+    }
+  }
+
+  protected void recordLatency(long elapsed) {
+    latencyMetric.record(elapsed, TimeUnit.MILLISECONDS);
+    latencyDistribution.record(elapsed);
+  }
+
+  private void abandon(Execution execution) {
+    AtomicReference<ExecutionState> state = execution.state;
+    if (state != null
+        && !state.compareAndSet(ExecutionState.QUEUED, ExecutionState.ABANDONED)
+        && state.compareAndSet(ExecutionState.RUNNING, ExecutionState.ABANDONED)) {
+      // Cancelling the future interrupts the thread, but a check blocked on I/O may not notice:
+      // the execution is tracked as a zombie until it actually completes.
+      zombieExecutions.incrementAndGet();
+    }
+    execution.future().cancel(true);
+  }
+
   protected abstract Result doCheck() throws Exception;
+
+  private enum ExecutionState {
+    QUEUED,
+    RUNNING,
+    DONE,
+    ABANDONED
+  }
+
+  /** Execution of a check that has been submitted and whose result is not collected yet. */
+  public static final class Execution {
+    private final long ts;
+    private final long deadline;
+    private final CircuitBreaker.Admission admission;
+    private final boolean cached;
+    private final ListenableFuture<StatusSummary> future;
+    private final AtomicReference<ExecutionState> state;
+
+    private static Execution completed(
+        long ts, CircuitBreaker.Admission admission, StatusSummary result) {
+      return new Execution(ts, ts, admission, false, Futures.immediateFuture(result), null);
+    }
+
+    private static Execution cached(long ts, StatusSummary result) {
+      return new Execution(ts, ts, null, true, Futures.immediateFuture(result), null);
+    }
+
+    private Execution(
+        long ts,
+        long deadline,
+        CircuitBreaker.Admission admission,
+        boolean cached,
+        ListenableFuture<StatusSummary> future,
+        AtomicReference<ExecutionState> state) {
+      this.ts = ts;
+      this.deadline = deadline;
+      this.admission = admission;
+      this.cached = cached;
+      this.future = future;
+      this.state = state;
+    }
+
+    public long ts() {
+      return ts;
+    }
+
+    /** Time (epoch millis) at which the execution times out. */
+    public long deadline() {
+      return deadline;
+    }
+
+    public ListenableFuture<StatusSummary> future() {
+      return future;
+    }
+  }
 }
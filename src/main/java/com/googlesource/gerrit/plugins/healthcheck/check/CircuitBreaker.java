@@ -0,0 +1,95 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.healthcheck.check;
+
+import com.google.common.flogger.FluentLogger;
+
+/**
+ * Circuit breaker of a single check.
+ *
+ * <p>After {@code failureThreshold} consecutive failures the circuit opens and the executions of
+ * the check are rejected. Once the backoff has elapsed a single trial execution is let through:
+ * if it passes the circuit closes, otherwise the backoff is doubled, up to {@code maxBackoff}.
+ */
+class CircuitBreaker {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  enum Admission {
+    /** The circuit is closed: the check is executed. */
+    ALLOWED,
+    /** The circuit is open and the backoff has elapsed: the check is executed as a trial. */
+    TRIAL,
+    /** The circuit is open: the check is not executed. */
+    REJECTED
+  }
+
+  private final String name;
+  private final int failureThreshold;
+  private final long initialBackoff;
+  private final long maxBackoff;
+
+  private int consecutiveFailures;
+  private long backoff;
+  private long retryAt;
+  private boolean trialInProgress;
+
+  CircuitBreaker(String name, int failureThreshold, long initialBackoff, long maxBackoff) {
+    this.name = name;
+    this.failureThreshold = failureThreshold;
+    this.initialBackoff = initialBackoff;
+    this.maxBackoff = Math.max(initialBackoff, maxBackoff);
+    this.backoff = initialBackoff;
+  }
+
+  synchronized Admission admit(long now) {
+    if (failureThreshold <= 0 || consecutiveFailures < failureThreshold) {
+      return Admission.ALLOWED;
+    }
+    if (trialInProgress || now < retryAt) {
+      return Admission.REJECTED;
+    }
+    trialInProgress = true;
+    return Admission.TRIAL;
+  }
+
+  synchronized void onResult(Admission admission, boolean failure, long now) {
+    if (admission == Admission.REJECTED || failureThreshold <= 0) {
+      return;
+    }
+    if (admission == Admission.TRIAL) {
+      trialInProgress = false;
+    }
+
+    if (!failure) {
+      if (consecutiveFailures >= failureThreshold) {
+        logger.atInfo().log("Check %s recovered: circuit closed", name);
+      }
+      consecutiveFailures = 0;
+      backoff = initialBackoff;
+      return;
+    }
+
+    consecutiveFailures++;
+    if (admission == Admission.TRIAL) {
+      backoff = Math.min(backoff * 2, maxBackoff);
+      retryAt = now + backoff;
+    } else if (consecutiveFailures == failureThreshold) {
+      retryAt = now + backoff;
+      logger.atWarning().log(
+          "Check %s failed %d consecutive times: circuit open for %d ms",
+          name, consecutiveFailures, backoff);
+    }
+  }
+}
@@ -0,0 +1,64 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+package com.googlesource.gerrit.plugins.healthcheck.check;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * CPU time (ns) and heap allocated (bytes) by a thread, used to account for the overhead of the
+ * checks on the node. Each value is null when the JVM cannot measure it for the thread, e.g. when
+ * the check is executed on a virtual thread.
+ */
+record ExecutionCost(Long cpuTimeNs, Long allocatedBytes) {
+  private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+  /** Returns the cost of the current thread since its start. */
+  static ExecutionCost ofCurrentThread() {
+    return new ExecutionCost(currentThreadCpuTime(), currentThreadAllocatedBytes());
+  }
+
+  /** Returns the cost of the current thread since this cost was taken on the same thread. */
+  ExecutionCost untilNow() {
+    ExecutionCost now = ofCurrentThread();
+    return new ExecutionCost(
+        difference(now.cpuTimeNs, cpuTimeNs), difference(now.allocatedBytes, allocatedBytes));
+  }
+
+  private static Long difference(Long end, Long start) {
+    return end == null || start == null ? null : Math.max(0L, end - start);
+  }
+
+  private static Long currentThreadCpuTime() {
+    if (!threads.isCurrentThreadCpuTimeSupported() || !threads.isThreadCpuTimeEnabled()) {
+      return null;
+    }
+    return validValue(threads.getCurrentThreadCpuTime());
+  }
+
+  private static Long currentThreadAllocatedBytes() {
+    if (!(threads instanceof com.sun.management.ThreadMXBean allocations)
+        || !allocations.isThreadAllocatedMemorySupported()
+        || !allocations.isThreadAllocatedMemoryEnabled()) {
+      return null;
+    }
+    return validValue(allocations.getThreadAllocatedBytes(Thread.currentThread().threadId()));
+  }
+
+  private static Long validValue(long value) {
+    return value < 0 ? null : value;
+  }
+}
@@ -16,50 +16,61 @@ package com.googlesource.gerrit.plugins.healthcheck.check;
 
 import static com.googlesource.gerrit.plugins.healthcheck.check.HealthCheckNames.GLOBAL;
 
+import com.google.common.collect.ImmutableSet;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gerrit.extensions.events.LifecycleListener;
 import com.google.gerrit.extensions.registration.DynamicSet;
+import com.google.gerrit.lifecycle.LifecycleModule;
+import com.google.gerrit.metrics.Counter0;
 import com.google.gerrit.metrics.MetricMaker;
 import com.google.inject.Inject;
+import com.google.inject.Module;
 import com.google.inject.Singleton;
 import com.googlesource.gerrit.plugins.healthcheck.HealthCheckConfig;
+import com.googlesource.gerrit.plugins.healthcheck.HealthCheckMetrics;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.Supplier;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 @Singleton
-public class GlobalHealthCheck extends AbstractHealthCheck {
+public class GlobalHealthCheck extends AbstractHealthCheck implements LifecycleListener {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  private static final long DEADLINE_TIMER_KEEP_ALIVE_SECONDS = 60L;
 
-  private final DynamicSet<HealthCheck> healthChecks;
-
-  public static class MemoizedStatusSummary implements Supplier<StatusSummary> {
-    private final AtomicReference<StatusSummary> result = new AtomicReference<>();
-    private final HealthCheck check;
-
-    MemoizedStatusSummary(HealthCheck check) {
-      this.check = check;
-    }
-
-    @Override
-    public StatusSummary get() {
-      if (result.get() == null) {
-        result.set(check.run());
+  public static Module module() {
+    return new LifecycleModule() {
+      @Override
+      protected void configure() {
+        listener().to(GlobalHealthCheck.class);
       }
-      return result.get();
-    }
-
-    public StatusSummary getIfCompleted() {
-      StatusSummary completedResult = result.get();
-      return completedResult == null
-          ? new StatusSummary(
-              Result.NOT_RUN, System.currentTimeMillis(), 0L, Collections.emptyMap())
-          : completedResult;
-    }
+    };
   }
 
+  private final DynamicSet<HealthCheck> healthChecks;
+  private final ListeningExecutorService executor;
+  private final ConcurrentMap<Set<String>, ListenableFuture<StatusSummary>> inFlightRuns =
+      new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, ListenableFuture<StatusSummary>> inFlightChecks =
+      new ConcurrentHashMap<>();
+  private final Counter0 coalescedRequestsMetric;
+  private final ScheduledThreadPoolExecutor deadlineTimer;
+
   @Inject
   public GlobalHealthCheck(
       DynamicSet<HealthCheck> healthChecks,
@@ -68,35 +79,319 @@ public class GlobalHealthCheck extends AbstractHealthCheck {
       MetricMaker metricMaker) {
     super(executor, healthCheckConfig, GLOBAL, metricMaker);
     this.healthChecks = healthChecks;
+    this.executor = executor;
+    this.coalescedRequestsMetric =
+        new HealthCheckMetrics(metricMaker, GLOBAL).getCoalescedRequestsCounterMetric();
+    // The timer only collects the checks whose deadline has expired: its thread never waits and
+    // terminates when there are no runs in progress.
+    this.deadlineTimer =
+        new ScheduledThreadPoolExecutor(
+            1,
+            new ThreadFactoryBuilder()
+                .setNameFormat("HealthCheck-Deadline-%d")
+                .setDaemon(true)
+                .build());
+    deadlineTimer.setRemoveOnCancelPolicy(true);
+    deadlineTimer.setKeepAliveTime(DEADLINE_TIMER_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS);
+    deadlineTimer.allowCoreThreadTimeOut(true);
+  }
+
+  @Override
+  public void start() {}
+
+  /** Cancels the pending deadlines and budgets of the runs in progress. */
+  @Override
+  public void stop() {
+    deadlineTimer.shutdownNow();
+  }
+
+  /** Names of the checks currently registered. */
+  public Set<String> checkNames() {
+    Set<String> names = new HashSet<>();
+    for (HealthCheck check : healthChecks) {
+      names.add(check.name());
+    }
+    return names;
   }
 
   @Override
   public HealthCheck.StatusSummary run() {
-    Iterable<HealthCheck> iterable = () -> healthChecks.iterator();
-    long ts = System.currentTimeMillis();
-    Map<String, MemoizedStatusSummary> checkToResults =
-        StreamSupport.stream(iterable.spliterator(), false)
-            .collect(Collectors.toMap(HealthCheck::name, MemoizedStatusSummary::new));
-    long elapsed = System.currentTimeMillis() - ts;
-    Result checkResult = hasAnyFailureOnResults(checkToResults) ? Result.FAILED : Result.PASSED;
-    Map<String, Object> reportedResults =
-        checkToResults.entrySet().stream()
-            .collect(Collectors.toMap(Map.Entry::getKey, v -> v.getValue().getIfCompleted()));
-    StatusSummary globalStatus =
-        new HealthCheck.StatusSummary(checkResult, ts, elapsed, reportedResults);
-    if (globalStatus.isFailure()) {
-      failureCounterMetric.increment();
+    return run(Collections.emptySet());
+  }
+
+  /**
+   * Runs only the checks with the given names, or all the checks when the set is empty. The
+   * dependencies on checks that are not selected are ignored.
+   */
+  public HealthCheck.StatusSummary run(Set<String> checkNames) {
+    return Futures.getUnchecked(runAsync(checkNames));
+  }
+
+  /**
+   * Runs all the checks without blocking the calling thread. No thread is blocked waiting for the
+   * checks either: their results are collected as they complete or time out.
+   */
+  public ListenableFuture<StatusSummary> runAsync() {
+    return runAsync(Collections.emptySet());
+  }
+
+  /** Same as {@link #run(Set)} but without blocking the calling thread. */
+  public ListenableFuture<StatusSummary> runAsync(Set<String> checkNames) {
+    // Callers arriving while a run of the same checks is in progress share its result instead of
+    // starting their own, so that the load on the checked subsystems does not grow with the number
+    // of callers.
+    Set<String> key = ImmutableSet.copyOf(checkNames);
+    SettableFuture<StatusSummary> newRun = SettableFuture.create();
+    ListenableFuture<StatusSummary> currentRun = inFlightRuns.putIfAbsent(key, newRun);
+    if (currentRun != null) {
+      coalescedRequestsMetric.increment();
+      return currentRun;
     }
-    latencyMetric.record(elapsed, TimeUnit.MILLISECONDS);
-    return globalStatus;
+
+    newRun.addListener(() -> inFlightRuns.remove(key, newRun), MoreExecutors.directExecutor());
+    new ChecksRun(key, newRun).start();
+    return newRun;
+  }
+
+  /**
+   * Run of a set of checks, driven by the completion of the checks and by timers.
+   *
+   * <p>The state of the run is only updated by tasks of a sequential executor, which are executed
+   * by the threads completing the checks or firing the timers and never wait for anything.
+   */
+  private class ChecksRun {
+    private final Set<String> checkNames;
+    private final SettableFuture<StatusSummary> status;
+    private final Executor sequential =
+        MoreExecutors.newSequentialExecutor(MoreExecutors.directExecutor());
+    private final long ts = System.currentTimeMillis();
+    private final long deadline;
+    private final Map<String, HealthCheck> checks = new HashMap<>();
+    private final Map<String, HealthCheck> waitingChecks = new HashMap<>();
+    private final Map<String, Set<String>> prerequisites = new HashMap<>();
+    private final Map<String, StatusSummary> results = new HashMap<>();
+    private final Map<String, ListenableFuture<StatusSummary>> runningChecks = new HashMap<>();
+    private ScheduledFuture<?> budgetTimer;
+    private boolean budgetExpired;
+
+    ChecksRun(Set<String> checkNames, SettableFuture<StatusSummary> status) {
+      this.checkNames = checkNames;
+      this.status = status;
+      long budget = config.getBudget();
+      this.deadline = budget > 0 ? ts + budget : Long.MAX_VALUE;
+    }
+
+    void start() {
+      update(
+          () -> {
+            for (HealthCheck check : healthChecks) {
+              if (checkNames.isEmpty() || checkNames.contains(check.name())) {
+                checks.put(check.name(), check);
+                waitingChecks.put(check.name(), check);
+              }
+            }
+            for (HealthCheck check : waitingChecks.values()) {
+              Set<String> checkPrerequisites = new HashSet<>(check.dependsOn());
+              checkPrerequisites.addAll(config.getDependsOn(check.name()));
+              // Dependencies on checks that are not registered are not taken into account
+              checkPrerequisites.retainAll(waitingChecks.keySet());
+              checkPrerequisites.remove(check.name());
+              prerequisites.put(check.name(), checkPrerequisites);
+            }
+            budgetTimer = schedule(deadline, () -> update(this::expireBudget));
+            startReadyChecks();
+          });
+    }
+
+    /** Executes the update of the state of the run, then completes the run if nothing is left. */
+    private void update(Runnable update) {
+      sequential.execute(
+          () -> {
+            if (status.isDone()) {
+              return;
+            }
+            try {
+              update.run();
+              if (waitingChecks.isEmpty() && runningChecks.isEmpty()) {
+                complete();
+              }
+            } catch (RuntimeException e) {
+              status.setException(e);
+            }
+          });
+    }
+
+    private void completed(
+        String name, ListenableFuture<StatusSummary> execution, StatusSummary result) {
+      if (runningChecks.remove(name, execution)) {
+        results.put(name, result);
+        startReadyChecks();
+      }
+    }
+
+    /**
+     * Reports the checks still running as timed out, without collecting them: they keep running
+     * until their own deadline, so that the budget of the run does not count as a failure of the
+     * checks themselves.
+     */
+    private void expireBudget() {
+      budgetExpired = true;
+      if (!runningChecks.isEmpty()) {
+        logger.atWarning().log(
+            "Checks %s not completed within the budget of the run", runningChecks.keySet());
+      }
+      long now = System.currentTimeMillis();
+      runningChecks.keySet().forEach(name -> skipped(name, budgetTimeout(now)));
+      runningChecks.clear();
+      startReadyChecks();
+    }
+
+    /**
+     * Reports the result of a check that the run did not execute or gave up on, also in the
+     * metrics of the check, which would otherwise keep showing its latest executed result.
+     */
+    private void skipped(String name, StatusSummary result) {
+      results.put(name, result);
+      HealthCheck check = checks.get(name);
+      if (check instanceof AbstractHealthCheck abstractCheck) {
+        abstractCheck.recordSkipped(result);
+      }
+    }
+
+    private StatusSummary budgetTimeout(long now) {
+      return new StatusSummary(Result.TIMEOUT, now, now - ts, Collections.emptyMap());
+    }
+
+    // Checks are started as soon as all their prerequisites have completed, so that independent
+    // branches of the dependency graph run concurrently and the overall elapsed time is the one of
+    // the slowest branch.
+    private void startReadyChecks() {
+      boolean progress = true;
+      while (progress) {
+        progress = false;
+        Iterator<HealthCheck> waiting = waitingChecks.values().iterator();
+        while (waiting.hasNext()) {
+          HealthCheck check = waiting.next();
+          Set<String> checkPrerequisites = prerequisites.get(check.name());
+          if (!results.keySet().containsAll(checkPrerequisites)) {
+            continue;
+          }
+
+          waiting.remove();
+          progress = true;
+          Optional<String> failedPrerequisite =
+              checkPrerequisites.stream().filter(p -> isBlocking(results.get(p))).findFirst();
+          if (failedPrerequisite.isPresent()) {
+            logger.atWarning().log(
+                "Check %s not executed: its prerequisite %s did not pass",
+                check.name(), failedPrerequisite.get());
+            skipped(
+                check.name(),
+                new StatusSummary(
+                    Result.NOT_RUN, System.currentTimeMillis(), 0L, Collections.emptyMap()));
+          } else if (budgetExpired) {
+            // Checks are not submitted once the budget has expired, as they would be reported as
+            // timed out straight away
+            skipped(check.name(), budgetTimeout(System.currentTimeMillis()));
+          } else {
+            startCheck(check);
+          }
+        }
+
+        if (!progress && runningChecks.isEmpty() && !waitingChecks.isEmpty()) {
+          logger.atWarning().log(
+              "Cyclic dependencies between checks %s: executing them regardless of their"
+                  + " dependencies",
+              waitingChecks.keySet());
+          waitingChecks.keySet().forEach(name -> prerequisites.put(name, Collections.emptySet()));
+          progress = true;
+        }
+      }
+    }
+
+    private void startCheck(HealthCheck check) {
+      ListenableFuture<StatusSummary> execution = execute(check);
+      runningChecks.put(check.name(), execution);
+      execution.addListener(
+          () -> update(() -> completed(check.name(), execution, Futures.getDone(execution))),
+          MoreExecutors.directExecutor());
+    }
+
+    private void complete() {
+      if (budgetTimer != null) {
+        budgetTimer.cancel(false);
+      }
+      boolean anyFailure = results.values().stream().anyMatch(StatusSummary::isFailure);
+      long elapsed = System.currentTimeMillis() - ts;
+      StatusSummary globalStatus =
+          new HealthCheck.StatusSummary(
+              anyFailure ? Result.FAILED : Result.PASSED, ts, elapsed, new HashMap<>(results));
+      if (checkNames.isEmpty()) {
+        // Runs of a subset of the checks do not represent the global status of the node
+        if (globalStatus.isFailure()) {
+          failureCounterMetric.increment();
+        }
+        resultCounterMetric.increment(globalStatus.result());
+        recordLatency(elapsed);
+        latestStatus = globalStatus;
+      }
+      status.set(globalStatus);
+    }
+  }
+
+  /**
+   * Returns the result of the execution of the check in progress, starting it when none is. The
+   * runs of different sets of checks, e.g. of readiness profiles sharing some checks, wait for the
+   * same execution of the checks they have in common instead of executing them again.
+   */
+  private ListenableFuture<StatusSummary> execute(HealthCheck check) {
+    SettableFuture<StatusSummary> newExecution = SettableFuture.create();
+    ListenableFuture<StatusSummary> currentExecution =
+        inFlightChecks.putIfAbsent(check.name(), newExecution);
+    if (currentExecution != null) {
+      return currentExecution;
+    }
+
+    try {
+      PendingCheck pendingCheck = PendingCheck.start(check, executor, config);
+      // The check is collected when it completes or, if it hangs, when its own deadline expires,
+      // also after the runs waiting for it have given up on it
+      Runnable collect =
+          () -> {
+            StatusSummary result = pendingCheck.collect();
+            if (result != null) {
+              inFlightChecks.remove(check.name(), newExecution);
+              newExecution.set(result);
+            }
+          };
+      pendingCheck.setTimer(schedule(pendingCheck.deadline(), collect));
+      pendingCheck.future().addListener(collect, MoreExecutors.directExecutor());
+    } catch (RuntimeException e) {
+      inFlightChecks.remove(check.name(), newExecution);
+      throw e;
+    }
+    return newExecution;
+  }
+
+  private ScheduledFuture<?> schedule(long time, Runnable task) {
+    if (time == Long.MAX_VALUE) {
+      return null;
+    }
+    return deadlineTimer.schedule(
+        task, Math.max(0L, time - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+  }
+
+  private static boolean isBlocking(StatusSummary prerequisiteResult) {
+    return prerequisiteResult.isFailure() || prerequisiteResult.result() == Result.NOT_RUN;
+  }
+
+  /** Records the status of the checks executed in the background by the scheduler. */
+  void updateScheduledStatus(StatusSummary status) {
+    latestStatus = status;
   }
 
   @Override
   protected Result doCheck() {
     return run().result();
   }
-
-  public static boolean hasAnyFailureOnResults(Map<String, MemoizedStatusSummary> results) {
-    return results.values().stream().parallel().anyMatch(res -> res.get().isFailure());
-  }
 }
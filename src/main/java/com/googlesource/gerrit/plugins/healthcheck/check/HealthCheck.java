@@ -34,21 +34,73 @@ public interface HealthCheck {
     NOT_RUN,
     @SerializedName("disabled")
     DISABLED;
+
+    /**
+     * Numeric code of the result, used where the result cannot be exported by name. The codes are
+     * part of the exported formats and must not change.
+     */
+    public int code() {
+      return switch (this) {
+        case PASSED -> 0;
+        case FAILED -> 1;
+        case TIMEOUT -> 2;
+        case NOT_RUN -> 3;
+        case DISABLED -> 4;
+      };
+    }
   }
 
-  public record StatusSummary(Result result, long ts, long elapsed, Map<String, Object> subChecks) {
+  /**
+   * Result of a check. The {@code age} is set only when the result is served from the cache of the
+   * check, and is the time elapsed since the result was produced. The CPU time and the heap
+   * allocated by the execution of the check are set only when {@code healthcheck.verbose} is
+   * enabled and the JVM can measure them.
+   */
+  public record StatusSummary(
+      Result result,
+      long ts,
+      long elapsed,
+      Map<String, Object> subChecks,
+      Long age,
+      Long cpuTimeNs,
+      Long allocatedBytes) {
     public static final StatusSummary INITIAL_STATUS =
         new StatusSummary(Result.PASSED, System.currentTimeMillis(), 0L, Collections.emptyMap());
 
     public static final Set<Result> failingResults =
         new HashSet<>(Arrays.asList(Result.FAILED, Result.TIMEOUT));
 
+    public StatusSummary(Result result, long ts, long elapsed, Map<String, Object> subChecks) {
+      this(result, ts, elapsed, subChecks, null);
+    }
+
+    public StatusSummary(
+        Result result, long ts, long elapsed, Map<String, Object> subChecks, Long age) {
+      this(result, ts, elapsed, subChecks, age, null, null);
+    }
+
     public Boolean isFailure() {
       return failingResults.contains(this.result);
     }
+
+    public StatusSummary withAge(long age) {
+      return new StatusSummary(result, ts, elapsed, subChecks, age, cpuTimeNs, allocatedBytes);
+    }
+
+    public StatusSummary withCost(Long cpuTimeNs, Long allocatedBytes) {
+      return new StatusSummary(result, ts, elapsed, subChecks, age, cpuTimeNs, allocatedBytes);
+    }
   }
 
   StatusSummary run();
 
   String name();
+
+  /**
+   * Names of the checks that must pass for this check to be meaningful. When any of them fails,
+   * the global check does not execute this check and reports it as {@link Result#NOT_RUN}.
+   */
+  default Set<String> dependsOn() {
+    return Collections.emptySet();
+  }
 }
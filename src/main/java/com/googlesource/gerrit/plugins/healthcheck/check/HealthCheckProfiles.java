@@ -0,0 +1,119 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.healthcheck.check;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.healthcheck.HealthCheckConfig;
+import com.googlesource.gerrit.plugins.healthcheck.HealthCheckConfig.ProfilePolicy;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheck.Result;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheck.StatusSummary;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Readiness profiles defined in the {@code profile} sections of the configuration.
+ *
+ * <p>A profile selects a subset of the checks and aggregates their results with its own policy, so
+ * that different pools of a load balancer can take the node out of rotation independently. The
+ * results of the checks are shared by all the profiles: they come from the scheduler snapshot when
+ * the checks are scheduled, or from the results cached by each check otherwise.
+ */
+@Singleton
+public class HealthCheckProfiles {
+  private final HealthCheckConfig config;
+  private final GlobalHealthCheck healthChecks;
+  private final HealthCheckScheduler scheduler;
+  private final ConcurrentMap<String, CachedStatus> cachedStatuses = new ConcurrentHashMap<>();
+
+  @Inject
+  public HealthCheckProfiles(
+      HealthCheckConfig config, GlobalHealthCheck healthChecks, HealthCheckScheduler scheduler) {
+    this.config = config;
+    this.healthChecks = healthChecks;
+    this.scheduler = scheduler;
+  }
+
+  public boolean exists(String profileName) {
+    return config.getProfiles().contains(profileName);
+  }
+
+  /**
+   * Returns the status of the checks of the profile, evaluated at most once per {@code cacheTtl}
+   * of the profile. Checks of the profile that are not registered are reported as {@link
+   * Result#NOT_RUN}.
+   */
+  public StatusSummary evaluate(String profileName) {
+    long now = System.currentTimeMillis();
+    CachedStatus cached = cachedStatuses.get(profileName);
+    if (cached != null && now - cached.ts() < config.getProfileCacheTtl(profileName)) {
+      return cached.status();
+    }
+
+    StatusSummary status = evaluateChecks(profileName, now);
+    cachedStatuses.put(profileName, new CachedStatus(now, status));
+    return status;
+  }
+
+  private StatusSummary evaluateChecks(String profileName, long now) {
+    Set<String> profileChecks = config.getProfileChecks(profileName);
+    Set<String> registeredChecks = new HashSet<>(profileChecks);
+    registeredChecks.retainAll(healthChecks.checkNames());
+
+    StatusSummary checksStatus;
+    if (registeredChecks.isEmpty()) {
+      checksStatus = new StatusSummary(Result.PASSED, now, 0L, Collections.emptyMap());
+    } else if (scheduler.isEnabled()) {
+      checksStatus = scheduler.getLatestStatus(registeredChecks);
+    } else {
+      checksStatus = healthChecks.run(registeredChecks);
+    }
+
+    Map<String, Object> results = new HashMap<>(checksStatus.subChecks());
+    for (String checkName : profileChecks) {
+      results.putIfAbsent(
+          checkName, new StatusSummary(Result.NOT_RUN, now, 0L, Collections.emptyMap()));
+    }
+    return new StatusSummary(
+        aggregate(config.getProfilePolicy(profileName), results.values()),
+        checksStatus.ts(),
+        checksStatus.elapsed(),
+        Collections.unmodifiableMap(results));
+  }
+
+  private static Result aggregate(ProfilePolicy policy, Iterable<Object> results) {
+    boolean anyPassing = false;
+    boolean allPassing = true;
+    for (Object result : results) {
+      StatusSummary status = (StatusSummary) result;
+      boolean passing = !status.isFailure() && status.result() != Result.NOT_RUN;
+      anyPassing |= passing;
+      allPassing &= passing;
+    }
+    boolean passed =
+        switch (policy) {
+          case ALL -> allPassing;
+          case ANY -> anyPassing;
+        };
+    return passed ? Result.PASSED : Result.FAILED;
+  }
+
+  private record CachedStatus(long ts, StatusSummary status) {}
+}
@@ -0,0 +1,395 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.healthcheck.check;
+
+import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gerrit.extensions.events.LifecycleListener;
+import com.google.gerrit.extensions.registration.DynamicSet;
+import com.google.gerrit.lifecycle.LifecycleModule;
+import com.google.inject.Inject;
+import com.google.inject.Module;
+import com.google.inject.Singleton;
+import com.googlesource.gerrit.plugins.healthcheck.HealthCheckConfig;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheck.Result;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheck.StatusSummary;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs every registered {@link HealthCheck} in the background, each one on its own interval, and
+ * keeps the latest aggregated {@link StatusSummary} in memory.
+ *
+ * <p>The scheduler is active only when {@code healthcheck.interval} is set to a positive value;
+ * otherwise the checks keep being executed on demand for every status request.
+ */
+@Singleton
+public class HealthCheckScheduler implements LifecycleListener {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  public static Module module() {
+    return new LifecycleModule() {
+      @Override
+      protected void configure() {
+        listener().to(HealthCheckScheduler.class);
+      }
+    };
+  }
+
+  private final DynamicSet<HealthCheck> healthChecks;
+  private final GlobalHealthCheck globalHealthCheck;
+  private final ListeningExecutorService executor;
+  private final HealthCheckConfig config;
+  private final long interval;
+  private final ConcurrentMap<String, ScheduledCheck> scheduledChecks =
+      new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, StatusSummary> latestResults = new ConcurrentHashMap<>();
+  private volatile Snapshot latestSnapshot;
+  private Map<String, Result> latestResultsByCheck = Collections.emptyMap();
+  private SettableFuture<Snapshot> nextSnapshot = SettableFuture.create();
+  private ScheduledExecutorService scheduler;
+
+  /**
+   * Latest status of the checks, with its version: the number of times the result of any of the
+   * checks has changed since the scheduler was created.
+   */
+  public record Snapshot(long version, StatusSummary status) {}
+
+  @Inject
+  public HealthCheckScheduler(
+      DynamicSet<HealthCheck> healthChecks,
+      GlobalHealthCheck globalHealthCheck,
+      ListeningExecutorService executor,
+      HealthCheckConfig config) {
+    this.healthChecks = healthChecks;
+    this.globalHealthCheck = globalHealthCheck;
+    this.executor = executor;
+    this.config = config;
+    this.interval = config.getInterval(null);
+    this.latestSnapshot =
+        new Snapshot(
+            0L,
+            new StatusSummary(
+                Result.FAILED, System.currentTimeMillis(), 0L, Collections.emptyMap()));
+  }
+
+  public boolean isEnabled() {
+    return interval > 0;
+  }
+
+  public StatusSummary getLatestStatus() {
+    return latestSnapshot.status();
+  }
+
+  public Snapshot getLatestSnapshot() {
+    return latestSnapshot;
+  }
+
+  /**
+   * Returns a future completed with the first snapshot whose version differs from the given one,
+   * i.e. as soon as the result of any check changes. The future is already completed when the
+   * version of the latest snapshot is different.
+   */
+  public synchronized ListenableFuture<Snapshot> whenChanged(long version) {
+    Snapshot latest = latestSnapshot;
+    if (latest.version() != version) {
+      return Futures.immediateFuture(latest);
+    }
+    return Futures.nonCancellationPropagating(nextSnapshot);
+  }
+
+  /**
+   * Returns the latest status of the checks with the given names only, or of all the checks when
+   * the set is empty.
+   */
+  public StatusSummary getLatestStatus(Set<String> checkNames) {
+    StatusSummary status = getLatestStatus();
+    if (checkNames.isEmpty()) {
+      return status;
+    }
+    Map<String, Object> results = new HashMap<>(status.subChecks());
+    results.keySet().retainAll(checkNames);
+    return new StatusSummary(
+        isFailureOrPending(results.values()) ? Result.FAILED : Result.PASSED,
+        status.ts(),
+        status.elapsed(),
+        Collections.unmodifiableMap(results));
+  }
+
+  @Override
+  public synchronized void start() {
+    if (!isEnabled() || scheduler != null) {
+      return;
+    }
+
+    // The checks are executed by the check executor: the scheduler thread only starts them and
+    // collects their results when they complete or time out, hence it never waits.
+    scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("HealthCheck-Scheduler-%d")
+                .setDaemon(true)
+                .build());
+    // Checks can be registered and unregistered by other plugins at any time, hence the set of
+    // scheduled checks is reconciled periodically.
+    scheduler.scheduleWithFixedDelay(this::scheduleChecks, 0, interval, TimeUnit.MILLISECONDS);
+    logger.atInfo().log("Scheduled health checks every %d ms", interval);
+  }
+
+  @Override
+  public synchronized void stop() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+      scheduler = null;
+    }
+    scheduledChecks.values().forEach(ScheduledCheck::cancel);
+    scheduledChecks.clear();
+  }
+
+  private void scheduleChecks() {
+    // An exception escaping this task would silently stop the reconciliation of the checks.
+    try {
+      reconcileChecks();
+    } catch (RuntimeException e) {
+      logger.atWarning().withCause(e).log("Unable to reconcile the scheduled checks");
+    }
+  }
+
+  private void reconcileChecks() {
+    Set<String> registeredChecks = new HashSet<>();
+    for (HealthCheck check : healthChecks) {
+      String name = check.name();
+      registeredChecks.add(name);
+      scheduledChecks.computeIfAbsent(
+          name,
+          n -> {
+            latestResults.putIfAbsent(
+                n,
+                new StatusSummary(
+                    Result.NOT_RUN, System.currentTimeMillis(), 0L, Collections.emptyMap()));
+            ScheduledCheck scheduledCheck = new ScheduledCheck(n, scheduler);
+            scheduledCheck.scheduleRun(0L);
+            return scheduledCheck;
+          });
+    }
+
+    boolean removed =
+        scheduledChecks
+            .entrySet()
+            .removeIf(
+                e -> {
+                  if (registeredChecks.contains(e.getKey())) {
+                    return false;
+                  }
+                  e.getValue().cancel();
+                  latestResults.remove(e.getKey());
+                  return true;
+                });
+    if (removed) {
+      publish(updateLatestStatus());
+    }
+  }
+
+  private HealthCheck findCheck(String name) {
+    for (HealthCheck check : healthChecks) {
+      if (check.name().equals(name)) {
+        return check;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Updates the latest snapshot and returns the future of the waiters for a change of the results,
+   * or null when no result has changed.
+   */
+  private synchronized SettableFuture<Snapshot> updateLatestStatus() {
+    Map<String, Object> results = new HashMap<>(latestResults);
+    Map<String, Result> resultsByCheck = new HashMap<>();
+    latestResults.forEach((name, status) -> resultsByCheck.put(name, status.result()));
+    // A check that has not completed its first run yet keeps the node out of rotation, so that a
+    // freshly started node is not reported as healthy before anything was verified.
+    StatusSummary status =
+        new StatusSummary(
+            isFailureOrPending(results.values()) ? Result.FAILED : Result.PASSED,
+            System.currentTimeMillis(),
+            0L,
+            Collections.unmodifiableMap(results));
+    // The checks are no longer executed by the global check, whose state must follow the
+    // scheduled results instead.
+    globalHealthCheck.updateScheduledStatus(status);
+
+    long version = latestSnapshot.version();
+    if (resultsByCheck.equals(latestResultsByCheck)) {
+      latestSnapshot = new Snapshot(version, status);
+      return null;
+    }
+    latestResultsByCheck = resultsByCheck;
+    latestSnapshot = new Snapshot(version + 1, status);
+    SettableFuture<Snapshot> changed = nextSnapshot;
+    nextSnapshot = SettableFuture.create();
+    return changed;
+  }
+
+  /** Notifies the waiters outside of the lock, as their listeners may be executed inline. */
+  private void publish(SettableFuture<Snapshot> changed) {
+    if (changed != null) {
+      changed.set(latestSnapshot);
+    }
+  }
+
+  private Set<String> prerequisitesOf(HealthCheck check) {
+    Set<String> prerequisites = new HashSet<>(check.dependsOn());
+    prerequisites.addAll(config.getDependsOn(check.name()));
+    return prerequisites;
+  }
+
+  private static boolean isFailureOrPending(Collection<Object> results) {
+    return results.stream()
+        .map(StatusSummary.class::cast)
+        .anyMatch(s -> s.isFailure() || s.result() == Result.NOT_RUN);
+  }
+
+  /**
+   * Check executed in the background. The next execution is scheduled only once the previous one
+   * has completed or timed out, so that a slow check never piles up executions.
+   */
+  private final class ScheduledCheck {
+    private final String name;
+    private final long checkInterval;
+    private final ScheduledExecutorService checkScheduler;
+    private volatile boolean cancelled;
+    private volatile ScheduledFuture<?> nextRun;
+
+    ScheduledCheck(String name, ScheduledExecutorService checkScheduler) {
+      this.name = name;
+      this.checkInterval = config.getInterval(name);
+      this.checkScheduler = checkScheduler;
+    }
+
+    void scheduleRun(long delay) {
+      if (cancelled) {
+        return;
+      }
+      try {
+        nextRun = checkScheduler.schedule(this::run, delay, TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        // The scheduler has been stopped
+      }
+    }
+
+    void cancel() {
+      cancelled = true;
+      ScheduledFuture<?> run = nextRun;
+      if (run != null) {
+        run.cancel(false);
+      }
+    }
+
+    private void run() {
+      try {
+        HealthCheck check = findCheck(name);
+        if (check == null) {
+          // Unregistered: the next reconciliation cancels it.
+          scheduleRun(checkInterval);
+          return;
+        }
+        Optional<String> failedPrerequisite = failedPrerequisite(check);
+        if (failedPrerequisite.isPresent()) {
+          logger.atWarning().atMostEvery(1, TimeUnit.MINUTES).log(
+              "Check %s not executed: its prerequisite %s did not pass",
+              name, failedPrerequisite.get());
+          StatusSummary notRun =
+              new StatusSummary(
+                  Result.NOT_RUN, System.currentTimeMillis(), 0L, Collections.emptyMap());
+          if (check instanceof AbstractHealthCheck abstractCheck) {
+            abstractCheck.recordSkipped(notRun);
+          }
+          completed(notRun);
+          return;
+        }
+        PendingCheck pendingCheck = PendingCheck.start(check, executor, config);
+        Runnable collect =
+            () -> {
+              StatusSummary result = pendingCheck.collect();
+              if (result != null) {
+                completed(result);
+              }
+            };
+        pendingCheck.setTimer(
+            checkScheduler.schedule(
+                collect,
+                Math.max(0L, pendingCheck.deadline() - System.currentTimeMillis()),
+                TimeUnit.MILLISECONDS));
+        pendingCheck.future().addListener(collect, MoreExecutors.directExecutor());
+      } catch (RuntimeException e) {
+        logger.atWarning().withCause(e).log("Scheduled check %s failed", name);
+        scheduleRun(checkInterval);
+      }
+    }
+
+    /**
+     * Returns a prerequisite of the check whose latest result is a failure, also through the
+     * prerequisites not executed because of it. The checks that have not completed their first run
+     * yet do not block their dependents, nor do the cyclic dependencies on the check itself.
+     */
+    private Optional<String> failedPrerequisite(HealthCheck check) {
+      Set<String> visited = new HashSet<>(Set.of(name));
+      Deque<String> prerequisites = new ArrayDeque<>(prerequisitesOf(check));
+      while (!prerequisites.isEmpty()) {
+        String prerequisite = prerequisites.poll();
+        StatusSummary result = latestResults.get(prerequisite);
+        // Dependencies on checks that are not registered are not taken into account
+        if (!visited.add(prerequisite) || result == null) {
+          continue;
+        }
+        if (result.isFailure()) {
+          return Optional.of(prerequisite);
+        }
+        HealthCheck prerequisiteCheck = findCheck(prerequisite);
+        if (result.result() == Result.NOT_RUN && prerequisiteCheck != null) {
+          prerequisites.addAll(prerequisitesOf(prerequisiteCheck));
+        }
+      }
+      return Optional.empty();
+    }
+
+    private void completed(StatusSummary result) {
+      if (!cancelled && latestResults.replace(name, result) != null) {
+        publish(updateLatestStatus());
+      }
+      scheduleRun(checkInterval);
+    }
+  }
+}
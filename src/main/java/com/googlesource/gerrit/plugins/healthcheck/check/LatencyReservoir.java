@@ -0,0 +1,68 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.healthcheck.check;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latencies of the most recent executions of a check.
+ *
+ * <p>The latencies are kept in a fixed size ring buffer that can be updated concurrently without
+ * locking: once full, every new sample overwrites the oldest one.
+ */
+public class LatencyReservoir {
+  static final int DEFAULT_SIZE = 128;
+
+  private final AtomicLongArray samples;
+  private final AtomicLong count = new AtomicLong();
+
+  public LatencyReservoir() {
+    this(DEFAULT_SIZE);
+  }
+
+  LatencyReservoir(int size) {
+    this.samples = new AtomicLongArray(size);
+  }
+
+  public void record(long latencyMs) {
+    long index = count.getAndIncrement();
+    samples.set((int) (index % samples.length()), latencyMs);
+  }
+
+  /** Number of samples currently in the reservoir. */
+  public int size() {
+    return (int) Math.min(count.get(), samples.length());
+  }
+
+  /**
+   * Returns the latency at the given quantile (between 0 and 1) of the samples in the reservoir,
+   * or zero when there are no samples.
+   */
+  public long quantile(double quantile) {
+    int size = size();
+    if (size == 0) {
+      return 0L;
+    }
+    long[] sorted = new long[size];
+    for (int i = 0; i < size; i++) {
+      sorted[i] = samples.get(i);
+    }
+    Arrays.sort(sorted);
+    int index = (int) Math.ceil(quantile * size) - 1;
+    return sorted[Math.max(0, Math.min(size - 1, index))];
+  }
+}
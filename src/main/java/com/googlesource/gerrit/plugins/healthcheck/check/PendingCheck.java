@@ -0,0 +1,123 @@
+// Copyright (C) 2019 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.healthcheck.check;
+
+import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.googlesource.gerrit.plugins.healthcheck.HealthCheckConfig;
+import com.googlesource.gerrit.plugins.healthcheck.check.AbstractHealthCheck.Execution;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheck.Result;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheck.StatusSummary;
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongFunction;
+
+/**
+ * Execution of a check that has been started and whose result is not collected yet. It is
+ * collected only once, when the check has completed or its deadline has expired, hence collecting
+ * it never waits.
+ */
+class PendingCheck {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  private final long deadline;
+  private final ListenableFuture<?> future;
+  private final LongFunction<StatusSummary> result;
+  private final AtomicBoolean collected = new AtomicBoolean();
+  private volatile ScheduledFuture<?> timer;
+
+  /**
+   * Starts the check and returns its pending execution, whose result function gives up at the
+   * time passed to it if the check has not completed by then.
+   */
+  static PendingCheck start(
+      HealthCheck check, ListeningExecutorService executor, HealthCheckConfig config) {
+    if (check instanceof AbstractHealthCheck abstractCheck) {
+      Execution execution = abstractCheck.start();
+      return new PendingCheck(
+          execution.deadline(),
+          execution.future(),
+          deadline -> abstractCheck.await(execution, deadline));
+    }
+
+    long ts = System.currentTimeMillis();
+    long timeout = config.getTimeout(check.name());
+    ListenableFuture<StatusSummary> resultFuture;
+    try {
+      resultFuture = executor.submit(check::run);
+    } catch (RejectedExecutionException e) {
+      logger.atWarning().withCause(e).log("Check %s rejected by its executor", check.name());
+      resultFuture = Futures.immediateFailedFuture(e);
+    }
+    ListenableFuture<StatusSummary> submitted = resultFuture;
+    return new PendingCheck(
+        ts + timeout,
+        submitted,
+        deadline -> {
+          Result result;
+          try {
+            long remaining = Math.min(ts + timeout, deadline) - System.currentTimeMillis();
+            return submitted.get(Math.max(0L, remaining), TimeUnit.MILLISECONDS);
+          } catch (TimeoutException e) {
+            logger.atWarning().withCause(e).log("Check %s timed out", check.name());
+            result = Result.TIMEOUT;
+          } catch (InterruptedException | ExecutionException e) {
+            logger.atWarning().withCause(e).log("Check %s failed", check.name());
+            result = Result.FAILED;
+          }
+          submitted.cancel(true);
+          return new StatusSummary(
+              result, ts, System.currentTimeMillis() - ts, Collections.emptyMap());
+        });
+  }
+
+  private PendingCheck(
+      long deadline, ListenableFuture<?> future, LongFunction<StatusSummary> result) {
+    this.deadline = deadline;
+    this.future = future;
+    this.result = result;
+  }
+
+  long deadline() {
+    return deadline;
+  }
+
+  ListenableFuture<?> future() {
+    return future;
+  }
+
+  /** Returns the result of the check, or null if it has already been collected. */
+  StatusSummary collect() {
+    if (!collected.compareAndSet(false, true)) {
+      return null;
+    }
+    ScheduledFuture<?> currentTimer = timer;
+    if (currentTimer != null) {
+      currentTimer.cancel(false);
+    }
+    return result.apply(System.currentTimeMillis());
+  }
+
+  void setTimer(ScheduledFuture<?> timer) {
+    this.timer = timer;
+  }
+}
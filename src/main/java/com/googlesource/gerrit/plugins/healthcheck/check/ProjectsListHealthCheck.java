@@ -14,6 +14,7 @@
 
 package com.googlesource.gerrit.plugins.healthcheck.check;
 
+import static com.googlesource.gerrit.plugins.healthcheck.check.HealthCheckNames.JGIT;
 import static com.googlesource.gerrit.plugins.healthcheck.check.HealthCheckNames.PROJECTSLIST;
 
 import com.google.common.flogger.FluentLogger;
@@ -27,6 +28,7 @@ import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
 import com.googlesource.gerrit.plugins.healthcheck.HealthCheckConfig;
+import java.util.Set;
 import java.util.SortedMap;
 
 @Singleton
@@ -49,6 +51,11 @@ public class ProjectsListHealthCheck extends AbstractHealthCheck {
     this.oneOffCtx = oneOffCtx;
   }
 
+  @Override
+  public Set<String> dependsOn() {
+    return Set.of(JGIT);
+  }
+
   @Override
   protected Result doCheck() {
     try (ManualRequestContext ctx = oneOffCtx.open()) {
@@ -14,6 +14,7 @@
 
 package com.googlesource.gerrit.plugins.healthcheck.check;
 
+import static com.googlesource.gerrit.plugins.healthcheck.check.HealthCheckNames.CHANGES_INDEX;
 import static com.googlesource.gerrit.plugins.healthcheck.check.HealthCheckNames.QUERYCHANGES;
 
 import com.google.common.flogger.FluentLogger;
@@ -27,6 +28,7 @@ import com.google.inject.Provider;
 import com.google.inject.Singleton;
 import com.googlesource.gerrit.plugins.healthcheck.HealthCheckConfig;
 import java.util.List;
+import java.util.Set;
 
 @Singleton
 public class QueryChangesHealthCheck extends AbstractHealthCheck {
@@ -50,6 +52,11 @@ public class QueryChangesHealthCheck extends AbstractHealthCheck {
     this.oneOffCtx = oneOffCtx;
   }
 
+  @Override
+  public Set<String> dependsOn() {
+    return Set.of(CHANGES_INDEX);
+  }
+
   @Override
   protected Result doCheck() throws Exception {
     try (ManualRequestContext ctx = oneOffCtx.open()) {
@@ -15,25 +15,48 @@
 package com.googlesource.gerrit.plugins.healthcheck.filter;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Splitter;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.net.HttpHeaders;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.gerrit.extensions.annotations.PluginName;
+import com.google.gerrit.extensions.restapi.BadRequestException;
 import com.google.gerrit.extensions.restapi.Response;
 import com.google.gerrit.httpd.AllRequestFilter;
 import com.google.gerrit.httpd.restapi.RestApiServlet;
 import com.google.gerrit.json.OutputFormat;
 import com.google.gerrit.server.ExceptionHook;
-import com.google.gerrit.server.config.ConfigResource;
 import com.google.gerrit.server.config.GerritServerConfig;
 import com.google.gson.Gson;
 import com.google.inject.Inject;
+import com.googlesource.gerrit.plugins.healthcheck.HealthCheckConfig;
 import com.googlesource.gerrit.plugins.healthcheck.HealthCheckExceptionHook;
+import com.googlesource.gerrit.plugins.healthcheck.HealthCheckFailedException;
+import com.googlesource.gerrit.plugins.healthcheck.api.HealthCheckLiveEndpoint;
 import com.googlesource.gerrit.plugins.healthcheck.api.HealthCheckStatusEndpoint;
+import com.googlesource.gerrit.plugins.healthcheck.api.StatusCborEncoder;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheck.StatusSummary;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheckScheduler;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
@@ -43,27 +66,52 @@ import javax.servlet.http.HttpServletResponse;
 import org.eclipse.jgit.lib.Config;
 
 public class HealthCheckStatusFilter extends AllRequestFilter {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
   public static final Gson GSON = OutputFormat.JSON.newGsonBuilder().create();
   public static final String JSON_MAGIC_STRING =
       new String(RestApiServlet.JSON_MAGIC, StandardCharsets.UTF_8);
+  static final String JSON_CONTENT_TYPE = "application/json;charset=UTF-8";
+  private static final String CHECKS_PARAMETER = "checks";
+  private static final String WAIT_FOR_CHANGE_PARAMETER = "waitForChange";
+  private static final Splitter CHECKS_SPLITTER =
+      Splitter.on(',').trimResults().omitEmptyStrings();
+  private static final byte[] LIVE_BODY =
+      (JSON_MAGIC_STRING + GSON.toJson(HealthCheckLiveEndpoint.LIVE))
+          .getBytes(StandardCharsets.UTF_8);
 
   private final HealthCheckStatusEndpoint statusEndpoint;
-  private final String pluginName;
-  private final Config cfg;
-  private final String uriPattern;
+  private final HealthCheckLiveEndpoint liveEndpoint;
+  private final StatusUriMatcher statusUriMatcher;
+  private final StatusUriMatcher liveUriMatcher;
+  private final StatusUriMatcher streamUriMatcher;
+  private final StatusChanges statusChanges;
   private final HealthCheckExceptionHook exceptionHook;
+  private final long requestTimeout;
+  private volatile EncodedStatus encodedJsonStatus;
+  private volatile EncodedStatus encodedCborStatus;
 
   @Inject
   public HealthCheckStatusFilter(
       HealthCheckStatusEndpoint statusEndpoint,
+      HealthCheckLiveEndpoint liveEndpoint,
+      HealthCheckScheduler scheduler,
       @PluginName String pluginName,
       @GerritServerConfig Config cfg,
+      HealthCheckConfig healthCheckConfig,
       HealthCheckExceptionHook exceptionHook) {
     this.statusEndpoint = statusEndpoint;
-    this.pluginName = pluginName;
-    this.cfg = cfg;
-    this.uriPattern = getUriPattern();
+    this.liveEndpoint = liveEndpoint;
+    List<String> uriPrefixes = extractUriPrefixes(cfg.getStringList("httpd", null, "listenUrl"));
+    this.statusUriMatcher =
+        new StatusUriMatcher(uriPrefixes, "/config/server/" + pluginName + "~status");
+    this.liveUriMatcher =
+        new StatusUriMatcher(uriPrefixes, "/config/server/" + pluginName + "~live");
+    this.streamUriMatcher =
+        new StatusUriMatcher(uriPrefixes, "/config/server/" + pluginName + "~stream");
     this.exceptionHook = exceptionHook;
+    this.requestTimeout = healthCheckConfig.getRequestTimeout();
+    this.statusChanges =
+        new StatusChanges(scheduler, this, requestTimeout, healthCheckConfig.getStreamHeartbeat());
   }
 
   private static List<String> extractUriPrefixes(String[] listenUrls) {
@@ -85,27 +133,6 @@ public class HealthCheckStatusFilter extends AllRequestFilter {
     return prefixes;
   }
 
-  private String getUriPattern() {
-    List<String> uriPrefixes = extractUriPrefixes(cfg.getStringList("httpd", null, "listenUrl"));
-    String prefixPattern = "";
-    if (uriPrefixes.size() == 1 && !uriPrefixes.get(0).isEmpty()) {
-      prefixPattern = "(?:/" + uriPrefixes.get(0) + ")";
-    } else if (uriPrefixes.size() > 1) {
-      prefixPattern = "(?:/";
-      for (String prefix : uriPrefixes) {
-        if (!prefix.isEmpty()) {
-          prefixPattern += prefix + "|";
-        }
-      }
-      prefixPattern = prefixPattern.substring(0, prefixPattern.length() - 1);
-      prefixPattern += ")";
-      if (uriPrefixes.contains("")) {
-        prefixPattern += "?";
-      }
-    }
-    return prefixPattern + "(?:/a)?/config/server/" + pluginName + "~status";
-  }
-
   @Override
   public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
       throws IOException, ServletException {
@@ -118,7 +145,18 @@ public class HealthCheckStatusFilter extends AllRequestFilter {
     HttpServletRequest httpRequest = (HttpServletRequest) request;
 
     if (isStatusCheck(httpRequest)) {
-      doStatusCheck(httpResponse);
+      String waitForChange = httpRequest.getParameter(WAIT_FOR_CHANGE_PARAMETER);
+      if (waitForChange != null) {
+        statusChanges.waitForChange(httpRequest, httpResponse, waitForChange);
+      } else if (httpRequest.isAsyncSupported()) {
+        doAsyncStatusCheck(httpRequest, httpResponse);
+      } else {
+        doStatusCheck(httpRequest, httpResponse);
+      }
+    } else if (isLiveCheck(httpRequest)) {
+      doLiveCheck(httpResponse);
+    } else if (isStatusStream(httpRequest)) {
+      statusChanges.stream(httpRequest, httpResponse);
     } else {
       chain.doFilter(request, response);
     }
@@ -126,28 +164,370 @@ public class HealthCheckStatusFilter extends AllRequestFilter {
 
   @VisibleForTesting
   protected boolean isStatusCheck(HttpServletRequest httpServletRequest) {
-    return httpServletRequest.getRequestURI().matches(uriPattern);
+    return statusUriMatcher.matches(httpServletRequest.getRequestURI());
+  }
+
+  @VisibleForTesting
+  protected boolean isLiveCheck(HttpServletRequest httpServletRequest) {
+    return liveUriMatcher.matches(httpServletRequest.getRequestURI());
   }
 
-  private void doStatusCheck(HttpServletResponse httpResponse)
+  @VisibleForTesting
+  protected boolean isStatusStream(HttpServletRequest httpServletRequest) {
+    return streamUriMatcher.matches(httpServletRequest.getRequestURI());
+  }
+
+  @Override
+  public void destroy() {
+    statusChanges.stop();
+  }
+
+  private void doLiveCheck(HttpServletResponse httpResponse) throws IOException {
+    if (liveEndpoint.isLive()) {
+      httpResponse.setContentType(JSON_CONTENT_TYPE);
+      httpResponse.setContentLength(LIVE_BODY.length);
+      httpResponse.getOutputStream().write(LIVE_BODY);
+    } else {
+      httpResponse.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Fail Flag File exists");
+    }
+  }
+
+  private void doStatusCheck(HttpServletRequest httpRequest, HttpServletResponse httpResponse)
       throws ServletException, IOException {
     try {
-      Response<Map<String, Object>> healthStatus = statusEndpoint.apply(new ConfigResource());
-      String healthStatusJson = GSON.toJson(healthStatus.value());
-      if (healthStatus.statusCode() == HttpServletResponse.SC_OK) {
-        PrintWriter writer = httpResponse.getWriter();
-        writer.print(JSON_MAGIC_STRING);
-        writer.print(healthStatusJson);
-      } else {
-        httpResponse.sendError(healthStatus.statusCode(), healthStatusJson);
-      }
+      writeStatus(
+          httpRequest, httpResponse, statusEndpoint.applyToChecks(selectedChecks(httpRequest)));
     } catch (Exception e) {
-      Optional<ExceptionHook.Status> status = exceptionHook.getStatus(e);
-      if (status.isPresent()) {
-        httpResponse.sendError(status.get().statusCode(), status.get().statusMessage());
-      } else {
+      if (!sendError(httpRequest, httpResponse, e)) {
         throw new ServletException(e);
       }
     }
   }
+
+  /** Names of the checks selected with the {@code checks} parameter, empty for all the checks. */
+  static Set<String> selectedChecks(HttpServletRequest httpRequest) {
+    String[] checksParameters = httpRequest.getParameterValues(CHECKS_PARAMETER);
+    if (checksParameters == null) {
+      return Collections.emptySet();
+    }
+    Set<String> checkNames = new HashSet<>();
+    for (String checks : checksParameters) {
+      CHECKS_SPLITTER.split(checks).forEach(checkNames::add);
+    }
+    return checkNames;
+  }
+
+  private boolean sendError(
+      HttpServletRequest httpRequest, HttpServletResponse httpResponse, Throwable t)
+      throws IOException {
+    if (t instanceof HealthCheckFailedException failure) {
+      writeStatusResponse(
+          httpRequest,
+          httpResponse,
+          encode(
+              HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+              failure.getResult(),
+              acceptsCbor(httpRequest)));
+      return true;
+    }
+    if (t instanceof BadRequestException) {
+      httpResponse.sendError(HttpServletResponse.SC_BAD_REQUEST, t.getMessage());
+      return true;
+    }
+    Optional<ExceptionHook.Status> status = exceptionHook.getStatus(t);
+    if (status.isEmpty()) {
+      return false;
+    }
+    httpResponse.sendError(status.get().statusCode(), status.get().statusMessage());
+    return true;
+  }
+
+  /**
+   * Releases the request thread while the checks are running and completes the response from the
+   * callback of the checks result, or with an error when the request timeout expires first.
+   */
+  private void doAsyncStatusCheck(
+      HttpServletRequest httpRequest, HttpServletResponse httpResponse) {
+    AtomicBoolean responded = new AtomicBoolean();
+    AsyncContext asyncContext = httpRequest.startAsync();
+    asyncContext.setTimeout(requestTimeout);
+    asyncContext.addListener(
+        new AsyncListener() {
+          @Override
+          public void onTimeout(AsyncEvent event) throws IOException {
+            if (responded.compareAndSet(false, true)) {
+              logger.atWarning().log(
+                  "Health check status not available after %d ms", requestTimeout);
+              httpResponse.sendError(
+                  HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Health check timed out");
+              asyncContext.complete();
+            }
+          }
+
+          @Override
+          public void onComplete(AsyncEvent event) {}
+
+          @Override
+          public void onError(AsyncEvent event) {}
+
+          @Override
+          public void onStartAsync(AsyncEvent event) {}
+        });
+
+    Futures.addCallback(
+        statusEndpoint.applyToChecksAsync(selectedChecks(httpRequest)),
+        new FutureCallback<Response<Map<String, Object>>>() {
+          @Override
+          public void onSuccess(Response<Map<String, Object>> healthStatus) {
+            respond(
+                asyncContext,
+                responded,
+                () -> writeStatus(httpRequest, httpResponse, healthStatus));
+          }
+
+          @Override
+          public void onFailure(Throwable t) {
+            respond(
+                asyncContext,
+                responded,
+                () -> {
+                  if (!sendError(httpRequest, httpResponse, t)) {
+                    logger.atSevere().withCause(t).log("Health check failed");
+                    httpResponse.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                  }
+                });
+          }
+        },
+        MoreExecutors.directExecutor());
+  }
+
+  /**
+   * Writes the response on a container thread: the callbacks of the checks are executed by the
+   * threads completing the checks or firing their deadlines, which must not be held by the clients
+   * slow at receiving their responses.
+   */
+  private static void respond(
+      AsyncContext asyncContext, AtomicBoolean responded, ResponseWriter writer) {
+    if (!responded.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      asyncContext.start(
+          () -> {
+            try {
+              writer.write();
+            } catch (IOException e) {
+              logger.atWarning().withCause(e).log("Cannot write health check status");
+            } finally {
+              asyncContext.complete();
+            }
+          });
+    } catch (IllegalStateException e) {
+      logger.atWarning().withCause(e).log("Health check status request already completed");
+    }
+  }
+
+  @FunctionalInterface
+  private interface ResponseWriter {
+    void write() throws IOException;
+  }
+
+  private void writeStatus(
+      HttpServletRequest httpRequest,
+      HttpServletResponse httpResponse,
+      Response<Map<String, Object>> healthStatus)
+      throws IOException {
+    writeStatusResponse(httpRequest, httpResponse, encode(healthStatus, acceptsCbor(httpRequest)));
+  }
+
+  /**
+   * Returns the response of the status endpoint for the given checks, built from the latest results
+   * of the scheduled checks: unlike the status requests, it never executes any check.
+   */
+  StatusResponse scheduledStatusResponse(Set<String> checkNames, boolean cbor) {
+    try {
+      return encode(statusEndpoint.latestScheduledStatus(checkNames), cbor);
+    } catch (HealthCheckFailedException e) {
+      return encode(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.getResult(), cbor);
+    } catch (BadRequestException e) {
+      byte[] message = e.getMessage().getBytes(StandardCharsets.UTF_8);
+      return new StatusResponse(
+          HttpServletResponse.SC_BAD_REQUEST,
+          false,
+          message,
+          Hashing.murmur3_128().hashBytes(message).toString());
+    }
+  }
+
+  /**
+   * Writes the response of the status endpoint with its ETag: the failures are sent as errors, the
+   * healthy status is sent only when it does not match the {@code If-None-Match} header.
+   */
+  void writeStatusResponse(
+      HttpServletRequest httpRequest, HttpServletResponse httpResponse, StatusResponse status)
+      throws IOException {
+    writeStatusResponse(httpRequest.getHeader(HttpHeaders.IF_NONE_MATCH), httpResponse, status);
+  }
+
+  /**
+   * Writes the response of the status endpoint for the {@code If-None-Match} header read from the
+   * request beforehand, without accessing the request anymore.
+   */
+  void writeStatusResponse(
+      String ifNoneMatch, HttpServletResponse httpResponse, StatusResponse status)
+      throws IOException {
+    httpResponse.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+    httpResponse.setHeader(HttpHeaders.ETAG, status.etag());
+    if (status.statusCode() != HttpServletResponse.SC_OK && !status.cbor()) {
+      httpResponse.sendError(
+          status.statusCode(), new String(status.body(), StandardCharsets.UTF_8));
+      return;
+    }
+    if (status.statusCode() == HttpServletResponse.SC_OK
+        && matchesETag(ifNoneMatch, status.tag())) {
+      httpResponse.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      return;
+    }
+    httpResponse.setStatus(status.statusCode());
+    httpResponse.setContentType(status.contentType());
+    httpResponse.setContentLength(status.body().length);
+    httpResponse.getOutputStream().write(status.body());
+  }
+
+  /**
+   * Returns the encoded form of the status, which is computed only once for all the requests
+   * served with the same status. The status is looked up by its results tag and compared by value,
+   * as the status of a subset of the checks is a new map for every request.
+   */
+  private StatusResponse encode(Response<Map<String, Object>> healthStatus, boolean cbor) {
+    Map<String, Object> status = healthStatus.value();
+    if (healthStatus.statusCode() != HttpServletResponse.SC_OK) {
+      return encode(healthStatus.statusCode(), status, cbor);
+    }
+    String tag = resultsTag(HttpServletResponse.SC_OK, cbor, status);
+    EncodedStatus encoded = cbor ? encodedCborStatus : encodedJsonStatus;
+    if (encoded == null
+        || !encoded.response().tag().equals(tag)
+        || !encoded.status().equals(status)) {
+      encoded = new EncodedStatus(status, encode(HttpServletResponse.SC_OK, status, cbor, tag));
+      if (cbor) {
+        encodedCborStatus = encoded;
+      } else {
+        encodedJsonStatus = encoded;
+      }
+    }
+    return encoded.response();
+  }
+
+  private static StatusResponse encode(int statusCode, Map<String, Object> status, boolean cbor) {
+    return encode(statusCode, status, cbor, resultsTag(statusCode, cbor, status));
+  }
+
+  private static StatusResponse encode(
+      int statusCode, Map<String, Object> status, boolean cbor, String tag) {
+    byte[] body =
+        cbor
+            ? StatusCborEncoder.encode(status)
+            : (JSON_MAGIC_STRING + GSON.toJson(status)).getBytes(StandardCharsets.UTF_8);
+    return new StatusResponse(statusCode, cbor, body, tag);
+  }
+
+  /**
+   * Returns the tag identifying the results of the checks in the status: it changes when the result
+   * of a check or the reason of the failure changes, but not with the timestamps and the latencies
+   * of the executions of the checks, which are different for every run.
+   */
+  private static String resultsTag(int statusCode, boolean cbor, Map<String, Object> status) {
+    Hasher hasher = Hashing.murmur3_128().newHasher().putInt(statusCode).putBoolean(cbor);
+    new TreeMap<>(status)
+        .forEach(
+            (name, value) -> {
+              if (value instanceof StatusSummary check) {
+                hasher.putString(name, StandardCharsets.UTF_8).putInt(check.result().code());
+              } else if (value instanceof String text) {
+                hasher
+                    .putString(name, StandardCharsets.UTF_8)
+                    .putString(text, StandardCharsets.UTF_8);
+              }
+            });
+    return hasher.hash().toString();
+  }
+
+  /**
+   * Returns whether the client prefers the CBOR encoding: {@code application/cbor} must be listed
+   * in the {@code Accept} header with a quality not lower than any of the media ranges matching
+   * JSON.
+   */
+  @VisibleForTesting
+  static boolean acceptsCbor(HttpServletRequest httpRequest) {
+    String accept = httpRequest.getHeader(HttpHeaders.ACCEPT);
+    if (accept == null) {
+      return false;
+    }
+    float cborQuality = 0f;
+    float jsonQuality = 0f;
+    for (String mediaRange : Splitter.on(',').trimResults().omitEmptyStrings().split(accept)) {
+      List<String> parameters = Splitter.on(';').trimResults().splitToList(mediaRange);
+      float quality = quality(parameters);
+      switch (parameters.get(0).toLowerCase(Locale.US)) {
+        case StatusCborEncoder.CBOR_CONTENT_TYPE -> cborQuality = Math.max(cborQuality, quality);
+        case "application/json", "application/*", "*/*" ->
+            jsonQuality = Math.max(jsonQuality, quality);
+        default -> {}
+      }
+    }
+    return cborQuality > 0f && cborQuality >= jsonQuality;
+  }
+
+  private static float quality(List<String> parameters) {
+    for (String parameter : parameters.subList(1, parameters.size())) {
+      int separator = parameter.indexOf('=');
+      if (separator > 0 && parameter.substring(0, separator).trim().equalsIgnoreCase("q")) {
+        try {
+          return Float.parseFloat(parameter.substring(separator + 1).trim());
+        } catch (NumberFormatException e) {
+          return 0f;
+        }
+      }
+    }
+    return 1f;
+  }
+
+  private static boolean matchesETag(String ifNoneMatch, String tag) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    for (String candidate : Splitter.on(',').trimResults().split(ifNoneMatch)) {
+      if (candidate.equals("*") || tagOf(candidate).equals(tag)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Returns the opaque tag of an entity tag, with the weak comparison of RFC 9110. */
+  static String tagOf(String etag) {
+    String tag = etag.trim();
+    if (tag.startsWith("W/")) {
+      tag = tag.substring(2);
+    }
+    return CharMatcher.is('"').trimFrom(tag);
+  }
+
+  /**
+   * Response of the status endpoint, encoded as requested by the client. It is identified by a
+   * weak ETag on purpose: the tag covers only the results of the checks, hence responses with the
+   * same tag are equivalent but not identical, as their timestamps and latencies differ.
+   */
+  record StatusResponse(int statusCode, boolean cbor, byte[] body, String tag) {
+    String etag() {
+      return "W/\"" + tag + "\"";
+    }
+
+    String contentType() {
+      return cbor ? StatusCborEncoder.CBOR_CONTENT_TYPE : JSON_CONTENT_TYPE;
+    }
+  }
+
+  private record EncodedStatus(Map<String, Object> status, StatusResponse response) {}
 }
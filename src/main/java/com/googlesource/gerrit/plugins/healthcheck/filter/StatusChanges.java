@@ -0,0 +1,540 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.healthcheck.filter;
+
+import com.google.common.base.Splitter;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.net.HttpHeaders;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gerrit.server.config.ConfigUtil;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheckScheduler;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheckScheduler.Snapshot;
+import com.googlesource.gerrit.plugins.healthcheck.filter.HealthCheckStatusFilter.StatusResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Serves the changes of the results of the scheduled checks, either to requests waiting for the
+ * next change (long-poll) or as a stream of server-sent events.
+ *
+ * <p>Both are backed by the snapshots of the {@link HealthCheckScheduler} and never execute any
+ * check. They serve the same responses as the status requests, identified by the same ETags, which
+ * change only when the result of any of the selected checks or the failure of the node changes.
+ */
+class StatusChanges {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  private static final String EVENT_STREAM_CONTENT_TYPE = "text/event-stream;charset=UTF-8";
+  private static final String LAST_EVENT_ID = "Last-Event-ID";
+  private static final byte[] HEARTBEAT = ": heartbeat\n\n".getBytes(StandardCharsets.UTF_8);
+  private static final int MAX_PENDING_EVENTS = 16;
+
+  private final HealthCheckScheduler scheduler;
+  private final HealthCheckStatusFilter statusFilter;
+  private final long maxWait;
+  private final long heartbeatInterval;
+  private final Set<EventStream> streams = ConcurrentHashMap.newKeySet();
+  private ScheduledExecutorService executor;
+
+  StatusChanges(
+      HealthCheckScheduler scheduler,
+      HealthCheckStatusFilter statusFilter,
+      long maxWait,
+      long heartbeatInterval) {
+    this.scheduler = scheduler;
+    this.statusFilter = statusFilter;
+    this.maxWait = maxWait;
+    this.heartbeatInterval = heartbeatInterval;
+  }
+
+  /**
+   * Responds with the status as soon as its ETag differs from the given one, or with 304 Not
+   * Modified when nothing has changed within the {@code timeout} parameter of the request.
+   */
+  void waitForChange(HttpServletRequest httpRequest, HttpServletResponse httpResponse, String etag)
+      throws IOException {
+    if (!isAvailable(httpResponse)) {
+      return;
+    }
+    long timeout;
+    try {
+      timeout =
+          Math.min(
+              ConfigUtil.getTimeUnit(
+                  httpRequest.getParameter("timeout"), maxWait, TimeUnit.MILLISECONDS),
+              maxWait);
+    } catch (IllegalArgumentException e) {
+      httpResponse.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid timeout");
+      return;
+    }
+
+    // The request is parsed only once: the callbacks of the changes never access it
+    String tag = HealthCheckStatusFilter.tagOf(etag);
+    Set<String> checks = HealthCheckStatusFilter.selectedChecks(httpRequest);
+    boolean cbor = HealthCheckStatusFilter.acceptsCbor(httpRequest);
+    String ifNoneMatch = httpRequest.getHeader(HttpHeaders.IF_NONE_MATCH);
+    long version = scheduler.getLatestSnapshot().version();
+    StatusResponse status = statusFilter.scheduledStatusResponse(checks, cbor);
+    if (!status.tag().equals(tag)) {
+      statusFilter.writeStatusResponse(ifNoneMatch, httpResponse, status);
+      return;
+    }
+    if (!httpRequest.isAsyncSupported()) {
+      waitForChangeSync(httpResponse, checks, cbor, ifNoneMatch, tag, version, timeout);
+      return;
+    }
+
+    AsyncContext asyncContext = httpRequest.startAsync();
+    asyncContext.setTimeout(timeout);
+    LongPoll longPoll = new LongPoll(asyncContext, httpResponse, checks, cbor, ifNoneMatch, tag);
+    asyncContext.addListener(
+        new StatusChangesListener() {
+          @Override
+          public void onTimeout(AsyncEvent event) {
+            longPoll.timeout();
+          }
+        });
+    longPoll.awaitChange(version);
+  }
+
+  private void waitForChangeSync(
+      HttpServletResponse httpResponse,
+      Set<String> checks,
+      boolean cbor,
+      String ifNoneMatch,
+      String tag,
+      long version,
+      long timeout)
+      throws IOException {
+    long deadline = System.currentTimeMillis() + timeout;
+    StatusResponse status;
+    do {
+      try {
+        version =
+            scheduler
+                .whenChanged(version)
+                .get(Math.max(0L, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS)
+                .version();
+      } catch (TimeoutException e) {
+        // Responds with the latest status, which is most likely not modified
+      } catch (InterruptedException | ExecutionException e) {
+        httpResponse.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        return;
+      }
+      status = statusFilter.scheduledStatusResponse(checks, cbor);
+    } while (status.tag().equals(tag) && System.currentTimeMillis() < deadline);
+    writeChange(ifNoneMatch, httpResponse, status, tag);
+  }
+
+  /**
+   * Streams the status as an event whenever its ETag changes, starting with the current one unless
+   * it is the {@code Last-Event-ID} of a reconnecting client, and heartbeat comments in between.
+   */
+  void stream(HttpServletRequest httpRequest, HttpServletResponse httpResponse)
+      throws IOException {
+    if (!isAvailable(httpResponse)) {
+      return;
+    }
+    if (!httpRequest.isAsyncSupported()) {
+      httpResponse.sendError(
+          HttpServletResponse.SC_NOT_IMPLEMENTED, "Asynchronous requests are not supported");
+      return;
+    }
+    Set<String> checks = HealthCheckStatusFilter.selectedChecks(httpRequest);
+    StatusResponse status = statusFilter.scheduledStatusResponse(checks, false);
+    if (status.statusCode() == HttpServletResponse.SC_BAD_REQUEST) {
+      statusFilter.writeStatusResponse(httpRequest, httpResponse, status);
+      return;
+    }
+
+    httpResponse.setContentType(EVENT_STREAM_CONTENT_TYPE);
+    httpResponse.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+    AsyncContext asyncContext = httpRequest.startAsync();
+    asyncContext.setTimeout(0);
+    String lastEventId = httpRequest.getHeader(LAST_EVENT_ID);
+    EventStream stream =
+        new EventStream(
+            asyncContext,
+            checks,
+            httpResponse.getOutputStream(),
+            lastEventId == null ? null : HealthCheckStatusFilter.tagOf(lastEventId));
+    asyncContext.addListener(
+        new StatusChangesListener() {
+          @Override
+          public void onComplete(AsyncEvent event) {
+            stream.close();
+          }
+
+          @Override
+          public void onError(AsyncEvent event) {
+            stream.close();
+          }
+        });
+    httpResponse.flushBuffer();
+    httpResponse.getOutputStream().setWriteListener(stream);
+    streams.add(stream);
+    long version = scheduler.getLatestSnapshot().version();
+    stream.update();
+    stream.awaitChange(version);
+  }
+
+  /** Closes all the open streams. */
+  synchronized void stop() {
+    streams.forEach(EventStream::close);
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  private boolean isAvailable(HttpServletResponse httpResponse) throws IOException {
+    if (scheduler.isEnabled()) {
+      return true;
+    }
+    httpResponse.sendError(
+        HttpServletResponse.SC_CONFLICT,
+        "Status changes are available only when healthcheck.interval is set");
+    return false;
+  }
+
+  /**
+   * Executor of the callbacks of the changes and of the heartbeats, which never blocks on a client:
+   * the events are written without blocking and the long-poll responses on the container threads.
+   */
+  private synchronized ScheduledExecutorService executor() {
+    if (executor == null) {
+      executor =
+          Executors.newSingleThreadScheduledExecutor(
+              new ThreadFactoryBuilder()
+                  .setNameFormat("HealthCheck-StatusChanges-%d")
+                  .setDaemon(true)
+                  .build());
+      executor.scheduleAtFixedRate(
+          () -> streams.forEach(EventStream::heartbeat),
+          heartbeatInterval,
+          heartbeatInterval,
+          TimeUnit.MILLISECONDS);
+    }
+    return executor;
+  }
+
+  private void writeChange(
+      String ifNoneMatch, HttpServletResponse httpResponse, StatusResponse status, String tag)
+      throws IOException {
+    if (status.tag().equals(tag)) {
+      httpResponse.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+      httpResponse.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+      httpResponse.setHeader(HttpHeaders.ETAG, status.etag());
+    } else {
+      statusFilter.writeStatusResponse(ifNoneMatch, httpResponse, status);
+    }
+  }
+
+  /**
+   * Formats the status as an event whose data is the body of the status response, split in one
+   * {@code data} line per line of the body.
+   */
+  static byte[] event(StatusResponse status) {
+    StringBuilder event =
+        new StringBuilder()
+            .append("id: ")
+            .append(status.tag())
+            .append("\nevent: ")
+            .append(status.statusCode() == HttpServletResponse.SC_OK ? "status" : "failure")
+            .append('\n');
+    for (String line :
+        Splitter.on('\n').split(new String(status.body(), StandardCharsets.UTF_8))) {
+      event.append("data: ").append(line).append('\n');
+    }
+    return event.append('\n').toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private class LongPoll {
+    private final AsyncContext asyncContext;
+    private final HttpServletResponse httpResponse;
+    private final Set<String> checks;
+    private final boolean cbor;
+    private final String ifNoneMatch;
+    private final String tag;
+    private final AtomicBoolean responded = new AtomicBoolean();
+    private ListenableFuture<Snapshot> pendingChange;
+
+    LongPoll(
+        AsyncContext asyncContext,
+        HttpServletResponse httpResponse,
+        Set<String> checks,
+        boolean cbor,
+        String ifNoneMatch,
+        String tag) {
+      this.asyncContext = asyncContext;
+      this.httpResponse = httpResponse;
+      this.checks = checks;
+      this.cbor = cbor;
+      this.ifNoneMatch = ifNoneMatch;
+      this.tag = tag;
+    }
+
+    void awaitChange(long version) {
+      ListenableFuture<Snapshot> change = scheduler.whenChanged(version);
+      synchronized (this) {
+        if (responded.get()) {
+          change.cancel(false);
+          return;
+        }
+        pendingChange = change;
+      }
+      Futures.addCallback(
+          change,
+          new FutureCallback<Snapshot>() {
+            @Override
+            public void onSuccess(Snapshot snapshot) {
+              if (responded.get()) {
+                return;
+              }
+              StatusResponse status = statusFilter.scheduledStatusResponse(checks, cbor);
+              if (status.tag().equals(tag)) {
+                awaitChange(snapshot.version());
+              } else {
+                try {
+                  asyncContext.start(() -> respond(status));
+                } catch (IllegalStateException e) {
+                  // The request has already timed out
+                }
+              }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+              if (responded.compareAndSet(false, true)) {
+                asyncContext.complete();
+              }
+            }
+          },
+          executor());
+    }
+
+    void timeout() {
+      respond(statusFilter.scheduledStatusResponse(checks, cbor));
+    }
+
+    private void respond(StatusResponse status) {
+      if (!responded.compareAndSet(false, true)) {
+        return;
+      }
+      cancelPendingChange();
+      try {
+        writeChange(ifNoneMatch, httpResponse, status, tag);
+      } catch (IOException e) {
+        logger.atWarning().withCause(e).log("Cannot write health check status change");
+      } finally {
+        asyncContext.complete();
+      }
+    }
+
+    /** Releases the callback of the change still awaited once the request has been answered. */
+    private void cancelPendingChange() {
+      ListenableFuture<Snapshot> change;
+      synchronized (this) {
+        change = pendingChange;
+        pendingChange = null;
+      }
+      if (change != null) {
+        change.cancel(false);
+      }
+    }
+  }
+
+  /**
+   * Stream of events written without blocking: the events are queued until the client can receive
+   * them, and the stream is closed when the client is too slow to keep up with the events or when
+   * writing fails.
+   */
+  private class EventStream implements WriteListener {
+    private final AsyncContext asyncContext;
+    private final Set<String> checks;
+    private final ServletOutputStream out;
+    private final Queue<byte[]> pending = new ArrayDeque<>();
+    private String lastTag;
+    private boolean needsFlush;
+    private boolean closed;
+    private ListenableFuture<Snapshot> pendingChange;
+
+    EventStream(
+        AsyncContext asyncContext, Set<String> checks, ServletOutputStream out, String lastTag) {
+      this.asyncContext = asyncContext;
+      this.checks = checks;
+      this.out = out;
+      this.lastTag = lastTag;
+    }
+
+    void awaitChange(long version) {
+      ListenableFuture<Snapshot> change = scheduler.whenChanged(version);
+      synchronized (this) {
+        if (closed) {
+          change.cancel(false);
+          return;
+        }
+        pendingChange = change;
+      }
+      Futures.addCallback(
+          change,
+          new FutureCallback<Snapshot>() {
+            @Override
+            public void onSuccess(Snapshot snapshot) {
+              if (update()) {
+                awaitChange(snapshot.version());
+              }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+              close();
+            }
+          },
+          executor());
+    }
+
+    /**
+     * Sends the status when its ETag has changed since the last event, also when only the failure
+     * of the node has changed, which is not tracked by the snapshots of the scheduler.
+     */
+    synchronized boolean update() {
+      if (closed) {
+        return false;
+      }
+      StatusResponse status = statusFilter.scheduledStatusResponse(checks, false);
+      if (status.statusCode() == HttpServletResponse.SC_BAD_REQUEST) {
+        close();
+        return false;
+      }
+      if (status.tag().equals(lastTag)) {
+        return true;
+      }
+      lastTag = status.tag();
+      return send(event(status));
+    }
+
+    synchronized void heartbeat() {
+      String tag = lastTag;
+      if (update() && Objects.equals(tag, lastTag)) {
+        send(HEARTBEAT);
+      }
+    }
+
+    private synchronized boolean send(byte[] data) {
+      if (closed) {
+        return false;
+      }
+      if (pending.size() >= MAX_PENDING_EVENTS) {
+        logger.atFine().log("Health check status stream closed: the client is too slow");
+        close();
+        return false;
+      }
+      pending.add(data);
+      return write();
+    }
+
+    @Override
+    public synchronized void onWritePossible() {
+      write();
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      logger.atFine().withCause(t).log("Health check status stream closed by the client");
+      close();
+    }
+
+    /** Writes the pending events for as long as the client can receive them without blocking. */
+    private synchronized boolean write() {
+      try {
+        while (!closed && out.isReady()) {
+          if (needsFlush) {
+            needsFlush = false;
+            out.flush();
+            continue;
+          }
+          byte[] data = pending.poll();
+          if (data == null) {
+            break;
+          }
+          out.write(data);
+          needsFlush = true;
+        }
+        return !closed;
+      } catch (IOException | IllegalStateException e) {
+        logger.atFine().withCause(e).log("Health check status stream closed by the client");
+        close();
+        return false;
+      }
+    }
+
+    void close() {
+      ListenableFuture<Snapshot> change;
+      synchronized (this) {
+        if (closed) {
+          return;
+        }
+        closed = true;
+        pending.clear();
+        change = pendingChange;
+        pendingChange = null;
+      }
+      if (change != null) {
+        change.cancel(false);
+      }
+      streams.remove(this);
+      try {
+        asyncContext.complete();
+      } catch (IllegalStateException e) {
+        // The request has already been completed
+      }
+    }
+  }
+
+  private abstract static class StatusChangesListener implements AsyncListener {
+    @Override
+    public void onComplete(AsyncEvent event) {}
+
+    @Override
+    public void onTimeout(AsyncEvent event) throws IOException {}
+
+    @Override
+    public void onError(AsyncEvent event) {}
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {}
+  }
+}
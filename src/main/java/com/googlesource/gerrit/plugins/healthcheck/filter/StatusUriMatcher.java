@@ -0,0 +1,83 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.healthcheck.filter;
+
+import java.util.List;
+
+/**
+ * Matches the URIs of a plugin endpoint, i.e. {@code [/<prefix>][/a]<path>} where the prefix is one
+ * of the paths of the configured {@code httpd.listenUrl}.
+ *
+ * <p>The matcher is invoked for every HTTP request, including git fetches, hence it does not
+ * allocate anything and rejects most of the URIs with a length and last character check.
+ */
+class StatusUriMatcher {
+  private static final String AUTHENTICATED_PREFIX = "/a";
+
+  private final String path;
+  private final String[] prefixes;
+  private final int minLength;
+  private final int maxLength;
+  private final char lastChar;
+
+  StatusUriMatcher(List<String> uriPrefixes, String path) {
+    this.path = path;
+    this.prefixes =
+        uriPrefixes.isEmpty()
+            ? new String[] {""}
+            : uriPrefixes.stream()
+                .map(prefix -> prefix.isEmpty() ? "" : "/" + prefix)
+                .distinct()
+                .toArray(String[]::new);
+
+    int shortestPrefix = Integer.MAX_VALUE;
+    int longestPrefix = 0;
+    for (String prefix : prefixes) {
+      shortestPrefix = Math.min(shortestPrefix, prefix.length());
+      longestPrefix = Math.max(longestPrefix, prefix.length());
+    }
+    this.minLength = shortestPrefix + path.length();
+    this.maxLength = longestPrefix + AUTHENTICATED_PREFIX.length() + path.length();
+    this.lastChar = path.charAt(path.length() - 1);
+  }
+
+  boolean matches(String uri) {
+    int length = uri.length();
+    if (length < minLength || length > maxLength || uri.charAt(length - 1) != lastChar) {
+      return false;
+    }
+
+    int pathStart = length - path.length();
+    if (!uri.regionMatches(pathStart, path, 0, path.length())) {
+      return false;
+    }
+    if (matchesPrefix(uri, pathStart)) {
+      return true;
+    }
+    int authenticatedStart = pathStart - AUTHENTICATED_PREFIX.length();
+    return authenticatedStart >= 0
+        && uri.startsWith(AUTHENTICATED_PREFIX, authenticatedStart)
+        && matchesPrefix(uri, authenticatedStart);
+  }
+
+  private boolean matchesPrefix(String uri, int prefixLength) {
+    for (String prefix : prefixes) {
+      if (prefix.length() == prefixLength && uri.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -125,6 +125,9 @@ public class AbstractHealthCheckTest {
 
     @Override
     public Counter0 newCounter(String name, Description desc) {
+      if (!name.endsWith("/failure")) {
+        return super.newCounter(name, desc);
+      }
       return new Counter0() {
 
         @Override
@@ -0,0 +1,91 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.healthcheck;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.googlesource.gerrit.plugins.healthcheck.api.FailFlag;
+import java.io.File;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FailFlagTest {
+  private static final long FLAG_UPDATE_TIMEOUT_MS = 5000L;
+  private static final long RESCAN_WAIT_MS = 2000L;
+
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private FailFlag failFlag;
+
+  @After
+  public void tearDown() {
+    if (failFlag != null) {
+      failFlag.stop();
+    }
+  }
+
+  @Test
+  public void shouldDetectFailFlagFileCreatedAndDeleted() throws Exception {
+    File failFlagFile = new File(tempFolder.getRoot(), "fail");
+    failFlag = failFlag(failFlagFile);
+    assertThat(failFlag.exists()).isFalse();
+
+    assertThat(failFlagFile.createNewFile()).isTrue();
+    assertThat(awaitFlag(true)).isTrue();
+
+    assertThat(failFlagFile.delete()).isTrue();
+    assertThat(awaitFlag(false)).isFalse();
+  }
+
+  @Test
+  public void shouldDetectFailFlagFileCreatedInMissingDirectory() throws Exception {
+    File failFlagDirectory = new File(tempFolder.getRoot(), "healthcheck");
+    File failFlagFile = new File(failFlagDirectory, "fail");
+    failFlag = failFlag(failFlagFile);
+    assertThat(failFlag.exists()).isFalse();
+
+    assertThat(failFlagDirectory.mkdir()).isTrue();
+    assertThat(failFlagFile.createNewFile()).isTrue();
+    assertThat(awaitFlag(true)).isTrue();
+  }
+
+  @Test
+  public void shouldKeepTheLastKnownPresenceOnceStopped() throws Exception {
+    File failFlagFile = new File(tempFolder.getRoot(), "fail");
+    failFlag = failFlag(failFlagFile);
+    assertThat(failFlag.exists()).isFalse();
+
+    failFlag.stop();
+    assertThat(failFlagFile.createNewFile()).isTrue();
+    Thread.sleep(RESCAN_WAIT_MS);
+    assertThat(failFlag.exists()).isFalse();
+  }
+
+  private boolean awaitFlag(boolean expected) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + FLAG_UPDATE_TIMEOUT_MS;
+    while (failFlag.exists() != expected && System.currentTimeMillis() < deadline) {
+      Thread.sleep(50);
+    }
+    return failFlag.exists();
+  }
+
+  private static FailFlag failFlag(File failFlagFile) {
+    return new FailFlag(
+        new HealthCheckConfig(
+            "[healthcheck]\n" + "failFileFlagPath = " + failFlagFile.getAbsolutePath()));
+  }
+}
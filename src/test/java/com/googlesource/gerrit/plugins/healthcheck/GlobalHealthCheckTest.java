@@ -0,0 +1,412 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.healthcheck;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.gerrit.extensions.registration.DynamicSet;
+import com.google.gerrit.extensions.registration.RegistrationHandle;
+import com.google.gerrit.metrics.Counter0;
+import com.google.gerrit.metrics.Counter1;
+import com.google.gerrit.metrics.Description;
+import com.google.gerrit.metrics.DisabledMetricMaker;
+import com.google.gerrit.metrics.Field;
+import com.google.gerrit.metrics.MetricMaker;
+import com.googlesource.gerrit.plugins.healthcheck.HealthCheckStatusEndpointTest.TestHealthCheck;
+import com.googlesource.gerrit.plugins.healthcheck.check.AbstractHealthCheck;
+import com.googlesource.gerrit.plugins.healthcheck.check.GlobalHealthCheck;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheck;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheck.Result;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheck.StatusSummary;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.junit.Test;
+
+public class GlobalHealthCheckTest {
+  private final ListeningExecutorService executor =
+      MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(10));
+  private final MetricMaker disabledMetricMaker = new DisabledMetricMaker();
+  private final HealthCheckConfig config =
+      new HealthCheckConfig("[healthcheck]\n" + "timeout = 1s");
+
+  @Test
+  public void shouldRunAllChecksConcurrently() {
+    DynamicSet<HealthCheck> healthChecks = new DynamicSet<>();
+    for (int i = 0; i < 5; i++) {
+      healthChecks.add("check" + i, newCheck("check" + i, Result.PASSED, 200));
+    }
+
+    StatusSummary status = newGlobalHealthCheck(healthChecks).run();
+
+    assertThat(status.result()).isEqualTo(Result.PASSED);
+    assertThat(status.subChecks()).hasSize(5);
+    assertThat(status.elapsed()).isLessThan(800L);
+  }
+
+  @Test
+  public void shouldReportAllResultsWhenOneCheckFails() {
+    DynamicSet<HealthCheck> healthChecks = new DynamicSet<>();
+    healthChecks.add("failingCheck", newCheck("checkKo", Result.FAILED, 0));
+    healthChecks.add("slowCheck", newCheck("checkSlow", Result.PASSED, 100));
+
+    StatusSummary status = newGlobalHealthCheck(healthChecks).run();
+
+    assertThat(status.result()).isEqualTo(Result.FAILED);
+    assertThat(resultOf(status, "checkKo")).isEqualTo(Result.FAILED);
+    assertThat(resultOf(status, "checkSlow")).isEqualTo(Result.PASSED);
+  }
+
+  @Test
+  public void shouldNotHoldAThreadOfTheCheckExecutorWhileWaitingForTheChecks() throws Exception {
+    ListeningExecutorService singleThreadExecutor =
+        MoreExecutors.listeningDecorator(Executors.newSingleThreadExecutor());
+    DynamicSet<HealthCheck> healthChecks = new DynamicSet<>();
+    for (int i = 0; i < 3; i++) {
+      String name = "check" + i;
+      healthChecks.add(
+          name,
+          new AbstractHealthCheck(singleThreadExecutor, config, name, disabledMetricMaker) {
+            @Override
+            protected Result doCheck() {
+              return Result.PASSED;
+            }
+          });
+    }
+    GlobalHealthCheck globalHealthCheck =
+        new GlobalHealthCheck(healthChecks, singleThreadExecutor, config, disabledMetricMaker);
+
+    StatusSummary status = globalHealthCheck.runAsync().get();
+    StatusSummary subsetStatus = globalHealthCheck.runAsync(Set.of("check0", "check1")).get();
+
+    assertThat(status.result()).isEqualTo(Result.PASSED);
+    assertThat(status.subChecks()).hasSize(3);
+    assertThat(subsetStatus.result()).isEqualTo(Result.PASSED);
+    assertThat(subsetStatus.subChecks()).hasSize(2);
+    singleThreadExecutor.shutdown();
+  }
+
+  @Test
+  public void shouldShareTheRunInProgressWithConcurrentCallers() throws Exception {
+    AtomicInteger executions = new AtomicInteger();
+    DynamicSet<HealthCheck> healthChecks = new DynamicSet<>();
+    healthChecks.add(
+        "countingCheck",
+        new TestHealthCheck(config, "checkOk", Result.PASSED, 500, disabledMetricMaker) {
+          @Override
+          public Result doCheck() {
+            executions.incrementAndGet();
+            return super.doCheck();
+          }
+        });
+    GlobalHealthCheck globalHealthCheck = newGlobalHealthCheck(healthChecks);
+
+    int callers = 5;
+    CountDownLatch started = new CountDownLatch(callers);
+    ExecutorService callersExecutor = Executors.newFixedThreadPool(callers);
+    List<Future<StatusSummary>> results = new ArrayList<>();
+    for (int i = 0; i < callers; i++) {
+      results.add(
+          callersExecutor.submit(
+              () -> {
+                started.countDown();
+                started.await();
+                return globalHealthCheck.run();
+              }));
+    }
+    for (Future<StatusSummary> result : results) {
+      assertThat(result.get().result()).isEqualTo(Result.PASSED);
+    }
+    callersExecutor.shutdown();
+
+    assertThat(executions.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldShareTheExecutionOfACheckBetweenConcurrentRunsOfDifferentChecks()
+      throws Exception {
+    AtomicInteger executions = new AtomicInteger();
+    DynamicSet<HealthCheck> healthChecks = new DynamicSet<>();
+    healthChecks.add("firstCheck", newCheck("checkFirst", Result.PASSED, 0));
+    healthChecks.add("secondCheck", newCheck("checkSecond", Result.PASSED, 0));
+    healthChecks.add(
+        "sharedCheck",
+        new TestHealthCheck(config, "checkShared", Result.PASSED, 500, disabledMetricMaker) {
+          @Override
+          public Result doCheck() {
+            executions.incrementAndGet();
+            return super.doCheck();
+          }
+        });
+    GlobalHealthCheck globalHealthCheck = newGlobalHealthCheck(healthChecks);
+
+    Future<StatusSummary> firstRun =
+        globalHealthCheck.runAsync(Set.of("checkFirst", "checkShared"));
+    Future<StatusSummary> secondRun =
+        globalHealthCheck.runAsync(Set.of("checkSecond", "checkShared"));
+
+    assertThat(resultOf(firstRun.get(), "checkShared")).isEqualTo(Result.PASSED);
+    assertThat(resultOf(secondRun.get(), "checkShared")).isEqualTo(Result.PASSED);
+    assertThat(executions.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldRunOnlyTheSelectedChecks() {
+    DynamicSet<HealthCheck> healthChecks = new DynamicSet<>();
+    healthChecks.add("passingCheck", newCheck("checkOk", Result.PASSED, 0));
+    healthChecks.add("failingCheck", newCheck("checkKo", Result.FAILED, 0));
+
+    StatusSummary status = newGlobalHealthCheck(healthChecks).run(Set.of("checkOk"));
+
+    assertThat(status.result()).isEqualTo(Result.PASSED);
+    assertThat(status.subChecks().keySet()).containsExactly("checkOk");
+  }
+
+  @Test
+  public void shouldReportTimeoutForChecksNotCompletedWithinTheBudget() {
+    HealthCheckConfig budgetConfig =
+        new HealthCheckConfig("[healthcheck]\n" + "timeout = 5s\n" + "budget = 200ms");
+    DynamicSet<HealthCheck> healthChecks = new DynamicSet<>();
+    healthChecks.add(
+        "fastCheck",
+        new TestHealthCheck(budgetConfig, "checkFast", Result.PASSED, 0, disabledMetricMaker));
+    healthChecks.add(
+        "slowCheck",
+        new TestHealthCheck(budgetConfig, "checkSlow", Result.PASSED, 2000, disabledMetricMaker));
+
+    StatusSummary status =
+        new GlobalHealthCheck(healthChecks, executor, budgetConfig, disabledMetricMaker).run();
+
+    assertThat(status.result()).isEqualTo(Result.FAILED);
+    assertThat(resultOf(status, "checkFast")).isEqualTo(Result.PASSED);
+    assertThat(resultOf(status, "checkSlow")).isEqualTo(Result.TIMEOUT);
+    assertThat(status.elapsed()).isLessThan(1000L);
+  }
+
+  @Test
+  public void shouldNotCountTheExpiredBudgetAsAFailureOfTheCheck() throws Exception {
+    HealthCheckConfig budgetConfig =
+        new HealthCheckConfig("[healthcheck]\n" + "timeout = 5s\n" + "budget = 100ms");
+    AtomicLong slowCheckFailures = new AtomicLong();
+    MetricMaker failureCountingMetricMaker =
+        new DisabledMetricMaker() {
+          @Override
+          public Counter0 newCounter(String name, Description desc) {
+            if (!name.equals("checkSlow/failure")) {
+              return super.newCounter(name, desc);
+            }
+            return new Counter0() {
+              @Override
+              public void incrementBy(long value) {
+                slowCheckFailures.addAndGet(value);
+              }
+
+              @Override
+              public void remove() {}
+            };
+          }
+        };
+    CountDownLatch release = new CountDownLatch(1);
+    DynamicSet<HealthCheck> healthChecks = new DynamicSet<>();
+    healthChecks.add(
+        "slowCheck",
+        new TestHealthCheck(
+            budgetConfig, "checkSlow", Result.PASSED, 0, failureCountingMetricMaker) {
+          @Override
+          public Result doCheck() {
+            Uninterruptibles.awaitUninterruptibly(release);
+            return super.doCheck();
+          }
+        });
+    healthChecks.add(
+        "dependentCheck",
+        new TestHealthCheck(budgetConfig, "checkDependent", Result.PASSED, 0, disabledMetricMaker) {
+          @Override
+          public Set<String> dependsOn() {
+            return Set.of("checkSlow");
+          }
+        });
+
+    StatusSummary status =
+        new GlobalHealthCheck(healthChecks, executor, budgetConfig, disabledMetricMaker).run();
+    release.countDown();
+
+    assertThat(resultOf(status, "checkSlow")).isEqualTo(Result.TIMEOUT);
+    assertThat(resultOf(status, "checkDependent")).isEqualTo(Result.NOT_RUN);
+    assertThat(slowCheckFailures.get()).isEqualTo(0L);
+  }
+
+  @Test
+  public void shouldNotRunChecksDependingOnAFailedCheck() {
+    DynamicSet<HealthCheck> healthChecks = new DynamicSet<>();
+    healthChecks.add("failingCheck", newCheck("checkKo", Result.FAILED, 0));
+    healthChecks.add("dependentCheck", newCheckDependingOn("checkDependent", "checkKo"));
+    healthChecks.add(
+        "transitivelyDependentCheck", newCheckDependingOn("checkTransitive", "checkDependent"));
+    healthChecks.add("independentCheck", newCheck("checkOk", Result.PASSED, 0));
+
+    StatusSummary status = newGlobalHealthCheck(healthChecks).run();
+
+    assertThat(status.result()).isEqualTo(Result.FAILED);
+    assertThat(resultOf(status, "checkKo")).isEqualTo(Result.FAILED);
+    assertThat(resultOf(status, "checkDependent")).isEqualTo(Result.NOT_RUN);
+    assertThat(resultOf(status, "checkTransitive")).isEqualTo(Result.NOT_RUN);
+    assertThat(resultOf(status, "checkOk")).isEqualTo(Result.PASSED);
+  }
+
+  @Test
+  public void shouldRecordTheResultOfTheChecksNotRun() {
+    ResultsMetricMaker metricMaker = new ResultsMetricMaker();
+    DynamicSet<HealthCheck> healthChecks = new DynamicSet<>();
+    healthChecks.add("failingCheck", newCheck("checkKo", Result.FAILED, 0));
+    healthChecks.add(
+        "dependentCheck",
+        new TestHealthCheck(config, "checkDependent", Result.PASSED, 0, metricMaker) {
+          @Override
+          public Set<String> dependsOn() {
+            return Set.of("checkKo");
+          }
+        });
+
+    newGlobalHealthCheck(healthChecks).run();
+
+    assertThat(metricMaker.results).containsExactly("checkDependent/result/not_run", 1L);
+    assertThat(metricMaker.gauges.get("checkDependent/state").get())
+        .isEqualTo(Result.NOT_RUN.code());
+  }
+
+  @Test
+  public void shouldRecordTheTimeoutOfTheChecksNotCompletedWithinTheBudget() {
+    HealthCheckConfig budgetConfig =
+        new HealthCheckConfig("[healthcheck]\n" + "timeout = 5s\n" + "budget = 100ms");
+    ResultsMetricMaker metricMaker = new ResultsMetricMaker();
+    CountDownLatch release = new CountDownLatch(1);
+    DynamicSet<HealthCheck> healthChecks = new DynamicSet<>();
+    healthChecks.add(
+        "slowCheck",
+        new TestHealthCheck(budgetConfig, "checkSlow", Result.PASSED, 0, metricMaker) {
+          @Override
+          public Result doCheck() {
+            Uninterruptibles.awaitUninterruptibly(release);
+            return super.doCheck();
+          }
+        });
+
+    new GlobalHealthCheck(healthChecks, executor, budgetConfig, disabledMetricMaker).run();
+
+    assertThat(metricMaker.results).containsExactly("checkSlow/result/timeout", 1L);
+    assertThat(metricMaker.gauges.get("checkSlow/state").get()).isEqualTo(Result.TIMEOUT.code());
+    release.countDown();
+  }
+
+  @Test
+  public void shouldRunChecksDependingOnAPassedCheck() {
+    HealthCheckConfig dependencyConfig =
+        new HealthCheckConfig(
+            "[healthcheck]\n"
+                + "timeout = 1s\n"
+                + "[healthcheck \"checkDependent\"]\n"
+                + "dependsOn = checkOk");
+    DynamicSet<HealthCheck> healthChecks = new DynamicSet<>();
+    healthChecks.add(
+        "prerequisiteCheck",
+        new TestHealthCheck(dependencyConfig, "checkOk", Result.PASSED, 0, disabledMetricMaker));
+    healthChecks.add(
+        "dependentCheck",
+        new TestHealthCheck(
+            dependencyConfig, "checkDependent", Result.PASSED, 0, disabledMetricMaker));
+
+    StatusSummary status =
+        new GlobalHealthCheck(healthChecks, executor, dependencyConfig, disabledMetricMaker).run();
+
+    assertThat(status.result()).isEqualTo(Result.PASSED);
+    assertThat(resultOf(status, "checkDependent")).isEqualTo(Result.PASSED);
+  }
+
+  @Test
+  public void shouldRunChecksWithCyclicDependencies() {
+    DynamicSet<HealthCheck> healthChecks = new DynamicSet<>();
+    healthChecks.add("firstCheck", newCheckDependingOn("checkFirst", "checkSecond"));
+    healthChecks.add("secondCheck", newCheckDependingOn("checkSecond", "checkFirst"));
+
+    StatusSummary status = newGlobalHealthCheck(healthChecks).run();
+
+    assertThat(status.result()).isEqualTo(Result.PASSED);
+    assertThat(status.subChecks()).hasSize(2);
+  }
+
+  private TestHealthCheck newCheckDependingOn(String name, String prerequisite) {
+    return new TestHealthCheck(config, name, Result.PASSED, 0, disabledMetricMaker) {
+      @Override
+      public Set<String> dependsOn() {
+        return Set.of(prerequisite);
+      }
+    };
+  }
+
+  private TestHealthCheck newCheck(String name, Result result, long sleep) {
+    return new TestHealthCheck(config, name, result, sleep, disabledMetricMaker);
+  }
+
+  private GlobalHealthCheck newGlobalHealthCheck(DynamicSet<HealthCheck> healthChecks) {
+    return new GlobalHealthCheck(healthChecks, executor, config, disabledMetricMaker);
+  }
+
+  private static Result resultOf(StatusSummary status, String checkName) {
+    return ((StatusSummary) status.subChecks().get(checkName)).result();
+  }
+
+  private static class ResultsMetricMaker extends DisabledMetricMaker {
+    final Map<String, Long> results = new ConcurrentHashMap<>();
+    final Map<String, Supplier<?>> gauges = new ConcurrentHashMap<>();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <F1> Counter1<F1> newCounter(String name, Description desc, Field<F1> field1) {
+      if (!name.endsWith("/result")) {
+        return super.newCounter(name, desc, field1);
+      }
+      return (Counter1<F1>)
+          new Counter1<Object>() {
+            @Override
+            public void incrementBy(Object field, long value) {
+              results.merge(name + "/" + field, value, Long::sum);
+            }
+
+            @Override
+            public void remove() {}
+          };
+    }
+
+    @Override
+    public <V> RegistrationHandle newCallbackMetric(
+        String name, Class<V> valueClass, Description desc, Supplier<V> trigger) {
+      gauges.put(name, trigger);
+      return () -> {};
+    }
+  }
+}
@@ -27,6 +27,8 @@ import static com.googlesource.gerrit.plugins.healthcheck.check.HealthCheckNames
 import static com.googlesource.gerrit.plugins.healthcheck.check.HealthCheckNames.PROJECTSLIST;
 import static com.googlesource.gerrit.plugins.healthcheck.check.HealthCheckNames.QUERYCHANGES;
 
+import com.googlesource.gerrit.plugins.healthcheck.HealthCheckConfig.ExecutorType;
+import com.googlesource.gerrit.plugins.healthcheck.HealthCheckConfig.ProfilePolicy;
 import org.junit.Test;
 
 public class HealthCheckConfigTest {
@@ -46,6 +48,211 @@ public class HealthCheckConfigTest {
     assertThat(config.getTimeout("barCheck")).isEqualTo(1000);
   }
 
+  @Test
+  public void shouldHaveNoIntervalByDefault() {
+    assertThat(DEFAULT_CONFIG.getInterval(null)).isEqualTo(0L);
+    assertThat(DEFAULT_CONFIG.getInterval("fooCheck")).isEqualTo(0L);
+  }
+
+  @Test
+  public void shouldHaveCheckOverriddenInterval() {
+    HealthCheckConfig config =
+        new HealthCheckConfig(
+            "[healthcheck]\n" + "interval=5s\n" + "[healthcheck \"fooCheck\"]\n" + "interval=30s");
+
+    assertThat(config.getInterval(null)).isEqualTo(5000L);
+    assertThat(config.getInterval("fooCheck")).isEqualTo(30000L);
+    assertThat(config.getInterval("barCheck")).isEqualTo(5000L);
+  }
+
+  @Test
+  public void shouldFallBackToGlobalIntervalWhenCheckIntervalIsNotPositive() {
+    HealthCheckConfig config =
+        new HealthCheckConfig(
+            "[healthcheck]\n"
+                + "interval=5s\n"
+                + "[healthcheck \"fooCheck\"]\n"
+                + "interval=0\n"
+                + "[healthcheck \"barCheck\"]\n"
+                + "interval=0ms");
+
+    assertThat(config.getInterval("fooCheck")).isEqualTo(5000L);
+    assertThat(config.getInterval("barCheck")).isEqualTo(5000L);
+  }
+
+  @Test
+  public void shouldHaveStatusFilterDisabledByDefault() {
+    assertThat(DEFAULT_CONFIG.isStatusFilterEnabled()).isFalse();
+    assertThat(
+            new HealthCheckConfig("[healthcheck]\n" + "statusFilter=true").isStatusFilterEnabled())
+        .isTrue();
+  }
+
+  @Test
+  public void shouldHaveNoBudgetByDefault() {
+    assertThat(DEFAULT_CONFIG.getBudget()).isEqualTo(0L);
+  }
+
+  @Test
+  public void shouldHaveConfiguredBudget() {
+    HealthCheckConfig config = new HealthCheckConfig("[healthcheck]\n" + "budget=2s");
+
+    assertThat(config.getBudget()).isEqualTo(2000L);
+  }
+
+  @Test
+  public void shouldHaveConfiguredDependencies() {
+    HealthCheckConfig config =
+        new HealthCheckConfig(
+            "[healthcheck \"fooCheck\"]\n" + "dependsOn=barCheck\n" + "dependsOn=bazCheck");
+
+    assertThat(config.getDependsOn("fooCheck")).containsExactly("barCheck", "bazCheck");
+    assertThat(config.getDependsOn("barCheck")).isEmpty();
+  }
+
+  @Test
+  public void shouldHaveCheckOverriddenCacheTtl() {
+    HealthCheckConfig config =
+        new HealthCheckConfig(
+            "[healthcheck]\n"
+                + "cacheTtl=10s\n"
+                + "[healthcheck \"fooCheck\"]\n"
+                + "cacheTtl=1m\n"
+                + "staleTtl=5m");
+
+    assertThat(DEFAULT_CONFIG.getCacheTtl("fooCheck")).isEqualTo(0L);
+    assertThat(config.getCacheTtl("fooCheck")).isEqualTo(60000L);
+    assertThat(config.getCacheTtl("barCheck")).isEqualTo(10000L);
+    assertThat(config.getStaleTtl("fooCheck")).isEqualTo(300000L);
+    assertThat(config.getStaleTtl("barCheck")).isEqualTo(0L);
+  }
+
+  @Test
+  public void shouldHaveCircuitBreakerDisabledByDefault() {
+    assertThat(DEFAULT_CONFIG.getFailureThreshold("fooCheck")).isEqualTo(0);
+  }
+
+  @Test
+  public void shouldHaveCheckOverriddenCircuitBreaker() {
+    HealthCheckConfig config =
+        new HealthCheckConfig(
+            "[healthcheck]\n"
+                + "failureThreshold=3\n"
+                + "backoff=5s\n"
+                + "[healthcheck \"fooCheck\"]\n"
+                + "failureThreshold=5\n"
+                + "maxBackoff=1m");
+
+    assertThat(config.getFailureThreshold("fooCheck")).isEqualTo(5);
+    assertThat(config.getFailureThreshold("barCheck")).isEqualTo(3);
+    assertThat(config.getBackoff("fooCheck")).isEqualTo(5000L);
+    assertThat(config.getMaxBackoff("fooCheck")).isEqualTo(60000L);
+  }
+
+  @Test
+  public void shouldHavePlatformExecutorByDefault() {
+    assertThat(DEFAULT_CONFIG.getExecutorType()).isEqualTo(ExecutorType.PLATFORM);
+    assertThat(DEFAULT_CONFIG.getThreads())
+        .isEqualTo(HealthCheckExtensionApiModule.CHECK_THREADS_DEFAULT);
+  }
+
+  @Test
+  public void shouldHaveConfiguredExecutor() {
+    HealthCheckConfig config =
+        new HealthCheckConfig("[healthcheck]\n" + "executor=virtual\n" + "threads=20");
+
+    assertThat(config.getExecutorType()).isEqualTo(ExecutorType.VIRTUAL);
+    assertThat(config.getThreads()).isEqualTo(20);
+  }
+
+  @Test
+  public void shouldHaveConfiguredLanes() {
+    HealthCheckConfig config =
+        new HealthCheckConfig(
+            "[healthcheck \"auth\"]\n"
+                + "lane=realm\n"
+                + "[lane \"realm\"]\n"
+                + "threads=2\n"
+                + "queueSize=4");
+
+    assertThat(config.getLane("auth")).isEqualTo("realm");
+    assertThat(config.getLane("jgit")).isNull();
+    assertThat(config.getLanes()).containsExactly("realm");
+    assertThat(config.getLaneThreads("realm")).isEqualTo(2);
+    assertThat(config.getLaneQueueSize("realm")).isEqualTo(4);
+  }
+
+  @Test
+  public void shouldIgnoreInvalidNumberOfThreads() {
+    assertThat(new HealthCheckConfig("[healthcheck]\n" + "threads=4").getThreads()).isEqualTo(4);
+    assertThat(new HealthCheckConfig("[healthcheck]\n" + "threads=0").getThreads())
+        .isEqualTo(HealthCheckExtensionApiModule.CHECK_THREADS_DEFAULT);
+    assertThat(new HealthCheckConfig("[healthcheck]\n" + "threads=-2").getThreads())
+        .isEqualTo(HealthCheckExtensionApiModule.CHECK_THREADS_DEFAULT);
+  }
+
+  @Test
+  public void shouldAcceptLanesWithoutQueueAndIgnoreNegativeQueueSizes() {
+    HealthCheckConfig config =
+        new HealthCheckConfig(
+            "[lane \"realm\"]\n" + "queueSize=0\n" + "[lane \"jgit\"]\n" + "queueSize=-1");
+
+    assertThat(config.getLaneQueueSize("realm")).isEqualTo(0);
+    assertThat(config.getLaneQueueSize("jgit")).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldIgnoreInvalidNumberOfLaneThreads() {
+    HealthCheckConfig config =
+        new HealthCheckConfig(
+            "[lane \"realm\"]\n"
+                + "threads=3\n"
+                + "[lane \"jgit\"]\n"
+                + "threads=0\n"
+                + "[lane \"index\"]\n"
+                + "threads=-1");
+
+    assertThat(config.getLaneThreads("realm")).isEqualTo(3);
+    assertThat(config.getLaneThreads("jgit")).isEqualTo(1);
+    assertThat(config.getLaneThreads("index")).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldHaveConfiguredProfiles() {
+    HealthCheckConfig config =
+        new HealthCheckConfig(
+            "[profile \"git\"]\n"
+                + "check=jgit\n"
+                + "check=activeworkers\n"
+                + "[profile \"ui\"]\n"
+                + "check=querychanges\n"
+                + "policy=any\n"
+                + "cacheTtl=5s");
+
+    assertThat(config.getProfiles()).containsExactly("git", "ui");
+    assertThat(config.getProfileChecks("git")).containsExactly("jgit", "activeworkers");
+    assertThat(config.getProfilePolicy("git")).isEqualTo(ProfilePolicy.ALL);
+    assertThat(config.getProfilePolicy("ui")).isEqualTo(ProfilePolicy.ANY);
+    assertThat(config.getProfileCacheTtl("git")).isEqualTo(0L);
+    assertThat(config.getProfileCacheTtl("ui")).isEqualTo(5000L);
+  }
+
+  @Test
+  public void shouldHaveConfiguredLatencyBuckets() {
+    HealthCheckConfig config =
+        new HealthCheckConfig(
+            "[healthcheck]\n"
+                + "latencyBucket=1s\n"
+                + "latencyBucket=100\n"
+                + "[healthcheck \"jgit\"]\n"
+                + "latencyBucket=20ms\n"
+                + "latencyBucket=invalid");
+
+    assertThat(config.getLatencyBuckets("jgit")).asList().containsExactly(20L);
+    assertThat(config.getLatencyBuckets("projectslist")).asList().containsExactly(100L, 1000L).inOrder();
+    assertThat(DEFAULT_CONFIG.getLatencyBuckets("jgit")).asList().contains(500L);
+  }
+
   @Test
   public void shouldHaveAuthUsername() {
     HealthCheckConfig config =
@@ -0,0 +1,197 @@
+// Copyright (C) 2021 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.healthcheck;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.gerrit.metrics.DisabledMetricMaker;
+import com.googlesource.gerrit.plugins.healthcheck.check.AbstractHealthCheck;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheck.Result;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheck.StatusSummary;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.After;
+import org.junit.Test;
+
+/** Behaviour of the executions of the checks built on {@link AbstractHealthCheck}. */
+public class HealthCheckExecutionTest {
+  private static final String CHECK_NAME = "testCheck";
+
+  // A single thread executes the checks in submission order, hence once a task submitted after an
+  // execution has run, the execution is known to have completed.
+  private final ListeningExecutorService executor =
+      MoreExecutors.listeningDecorator(Executors.newSingleThreadExecutor());
+  private final AtomicInteger executions = new AtomicInteger();
+  private final AtomicLong clock = new AtomicLong(System.currentTimeMillis());
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void shouldNotResubmitCheckWhileTimedOutExecutionIsStillRunning() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    TestCheck testCheck =
+        new TestCheck("timeout = 50ms", Result.PASSED) {
+          @Override
+          protected Result doCheck() {
+            Uninterruptibles.awaitUninterruptibly(release);
+            return super.doCheck();
+          }
+        };
+
+    assertThat(testCheck.run().result()).isEqualTo(Result.TIMEOUT);
+    assertThat(testCheck.run().result()).isEqualTo(Result.TIMEOUT);
+    assertThat(executions.get()).isEqualTo(1);
+
+    release.countDown();
+    awaitCompletedExecutions();
+    assertThat(testCheck.run().result()).isEqualTo(Result.PASSED);
+    assertThat(executions.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldNotExecuteCheckWhileCircuitIsOpen() {
+    TestCheck testCheck =
+        new TestCheck(
+            "failureThreshold = 2\n" + "backoff = 200ms\n" + "maxBackoff = 1s", Result.FAILED);
+
+    assertThat(testCheck.run().result()).isEqualTo(Result.FAILED);
+    assertThat(testCheck.run().result()).isEqualTo(Result.FAILED);
+    assertThat(testCheck.run().result()).isEqualTo(Result.FAILED);
+    assertThat(executions.get()).isEqualTo(2);
+
+    clock.addAndGet(200L);
+    assertThat(testCheck.run().result()).isEqualTo(Result.FAILED);
+    assertThat(testCheck.run().result()).isEqualTo(Result.FAILED);
+    assertThat(executions.get()).isEqualTo(3);
+  }
+
+  @Test
+  public void shouldAdaptTimeoutToObservedLatency() {
+    TestCheck testCheck = createSlowTestCheck(100L);
+
+    for (int i = 0; i < 19; i++) {
+      testCheck.run();
+    }
+    assertThat(testCheck.effectiveTimeout()).isEqualTo(2000L);
+
+    testCheck.run();
+    assertThat(testCheck.effectiveTimeout()).isEqualTo(300L);
+  }
+
+  @Test
+  public void shouldNotAdaptTimeoutBelowTheMinimum() {
+    TestCheck testCheck = createSlowTestCheck(10L);
+
+    for (int i = 0; i < 20; i++) {
+      testCheck.run();
+    }
+
+    assertThat(testCheck.effectiveTimeout()).isEqualTo(50L);
+  }
+
+  @Test
+  public void shouldReuseResultWithinCacheTtl() {
+    TestCheck testCheck = new TestCheck("cacheTtl = 1m", Result.PASSED);
+
+    assertThat(testCheck.run().age()).isNull();
+    clock.addAndGet(100L);
+    StatusSummary cachedStatus = testCheck.run();
+
+    assertThat(cachedStatus.result()).isEqualTo(Result.PASSED);
+    assertThat(cachedStatus.age()).isEqualTo(100L);
+    assertThat(executions.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldServeStaleResultWhileRefreshingInBackground() throws Exception {
+    TestCheck testCheck = new TestCheck("cacheTtl = 50ms\n" + "staleTtl = 1m", Result.PASSED);
+
+    testCheck.run();
+    clock.addAndGet(100L);
+    StatusSummary staleStatus = testCheck.run();
+
+    assertThat(staleStatus.age()).isEqualTo(100L);
+    awaitCompletedExecutions();
+    assertThat(executions.get()).isEqualTo(2);
+    assertThat(testCheck.run().age()).isEqualTo(0L);
+    assertThat(executions.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldExecuteCheckOnceResultIsOlderThanStaleTtl() {
+    TestCheck testCheck = new TestCheck("cacheTtl = 50ms\n" + "staleTtl = 1s", Result.PASSED);
+
+    testCheck.run();
+    clock.addAndGet(1000L);
+
+    assertThat(testCheck.run().age()).isNull();
+    assertThat(executions.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldReportTheExecutionCostOnlyWhenVerbose() {
+    StatusSummary status = new TestCheck("", Result.PASSED).run();
+    StatusSummary verboseStatus =
+        new TestCheck(new HealthCheckConfig("[healthcheck]\n" + "verbose = true"), Result.PASSED)
+            .run();
+
+    assertThat(status.cpuTimeNs()).isNull();
+    assertThat(status.allocatedBytes()).isNull();
+    assertThat(verboseStatus.cpuTimeNs()).isAtLeast(0L);
+    assertThat(verboseStatus.allocatedBytes()).isAtLeast(0L);
+  }
+
+  private TestCheck createSlowTestCheck(long latency) {
+    return new TestCheck(
+        "timeout = 2s\n" + "adaptiveTimeout = true\n" + "minTimeout = 50ms", Result.PASSED) {
+      @Override
+      protected Result doCheck() {
+        clock.addAndGet(latency);
+        return super.doCheck();
+      }
+    };
+  }
+
+  private void awaitCompletedExecutions() throws Exception {
+    executor.submit(() -> {}).get();
+  }
+
+  private class TestCheck extends AbstractHealthCheck {
+    private final Result result;
+
+    TestCheck(String checkConfig, Result result) {
+      this(new HealthCheckConfig("[healthcheck \"" + CHECK_NAME + "\"]\n" + checkConfig), result);
+    }
+
+    TestCheck(HealthCheckConfig config, Result result) {
+      super(executor, config, CHECK_NAME, new DisabledMetricMaker(), clock::get);
+      this.result = result;
+    }
+
+    @Override
+    protected Result doCheck() {
+      executions.incrementAndGet();
+      return result;
+    }
+  }
+}
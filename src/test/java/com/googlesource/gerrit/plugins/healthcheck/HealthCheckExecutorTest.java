@@ -0,0 +1,138 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.healthcheck;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.gerrit.testing.GerritJUnit.assertThrows;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.Test;
+
+public class HealthCheckExecutorTest {
+  private static final String LANE_CONFIG =
+      """
+      [healthcheck "slowCheck"]
+         lane = slow
+      [lane "slow"]
+         threads = 1
+         queueSize = 1
+      """;
+
+  @Test
+  public void shouldUseDefaultExecutorForChecksWithoutLane() {
+    HealthCheckExecutor executor = HealthCheckExecutor.create(HealthCheckConfig.DEFAULT_CONFIG);
+
+    assertThat(executor.lanes()).isEmpty();
+    assertThat(executor.forCheck("fooCheck")).isNotNull();
+  }
+
+  @Test
+  public void shouldExposeTheDefaultPoolOfPlatformThreads() throws Exception {
+    HealthCheckExecutor executor = HealthCheckExecutor.create(HealthCheckConfig.DEFAULT_CONFIG);
+    HealthCheckExecutor.Lane defaultPool = executor.defaultPool().orElseThrow();
+
+    assertThat(executor.forCheck("fooCheck").submit(() -> "done").get()).isEqualTo("done");
+    assertThat(defaultPool.queuedTasks()).isEqualTo(0);
+    assertThat(defaultPool.rejectedTasks()).isEqualTo(0L);
+  }
+
+  @Test
+  public void shouldNotHaveADefaultPoolWithVirtualThreads() {
+    HealthCheckExecutor executor =
+        HealthCheckExecutor.create(new HealthCheckConfig("[healthcheck]\n" + "executor = virtual"));
+
+    assertThat(executor.defaultPool()).isEmpty();
+  }
+
+  @Test
+  public void shouldIsolateChecksAssignedToALane() throws Exception {
+    HealthCheckExecutor executor = HealthCheckExecutor.create(new HealthCheckConfig(LANE_CONFIG));
+    ListeningExecutorService slowLane = executor.forCheck("slowCheck");
+    ListeningExecutorService otherChecks = executor.forCheck("otherCheck");
+    assertThat(slowLane).isNotSameInstanceAs(otherChecks);
+
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch running = new CountDownLatch(1);
+    var unused =
+        slowLane.submit(
+            () -> {
+              running.countDown();
+              release.await();
+              return null;
+            });
+    running.await();
+    var queued = slowLane.submit(() -> null);
+
+    HealthCheckExecutor.Lane lane = executor.lanes().get("slow");
+    assertThat(lane.activeThreads()).isEqualTo(1);
+    assertThat(lane.queuedTasks()).isEqualTo(1);
+    assertThrows(RejectedExecutionException.class, () -> slowLane.submit(() -> null));
+    assertThat(lane.rejectedTasks()).isEqualTo(1L);
+    assertThat(otherChecks.submit(() -> "done").get()).isEqualTo("done");
+
+    release.countDown();
+    queued.get();
+  }
+
+  @Test
+  public void shouldRejectChecksWhenAllThreadsOfALaneWithoutQueueAreBusy() throws Exception {
+    HealthCheckExecutor executor =
+        HealthCheckExecutor.create(
+            new HealthCheckConfig(LANE_CONFIG.replace("queueSize = 1", "queueSize = 0")));
+    ListeningExecutorService slowLane = executor.forCheck("slowCheck");
+
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch running = new CountDownLatch(1);
+    var busy =
+        slowLane.submit(
+            () -> {
+              running.countDown();
+              release.await();
+              return null;
+            });
+    running.await();
+
+    HealthCheckExecutor.Lane lane = executor.lanes().get("slow");
+    assertThrows(RejectedExecutionException.class, () -> slowLane.submit(() -> null));
+    assertThat(lane.queuedTasks()).isEqualTo(0);
+    assertThat(lane.rejectedTasks()).isEqualTo(1L);
+
+    release.countDown();
+    busy.get();
+  }
+
+  @Test
+  public void shouldUseDefaultExecutorForChecksAssignedToAnUndefinedLane() {
+    HealthCheckExecutor executor =
+        HealthCheckExecutor.create(
+            new HealthCheckConfig(LANE_CONFIG + "[healthcheck \"otherCheck\"]\n lane = missing"));
+
+    assertThat(executor.forCheck("otherCheck")).isSameInstanceAs(executor.forCheck("fooCheck"));
+    assertThat(executor.forCheck("slowCheck")).isNotSameInstanceAs(executor.forCheck("fooCheck"));
+  }
+
+  @Test
+  public void shouldStopTheThreadsOfAllTheExecutors() {
+    HealthCheckExecutor executor = HealthCheckExecutor.create(new HealthCheckConfig(LANE_CONFIG));
+    executor.stop();
+
+    assertThrows(
+        RejectedExecutionException.class, () -> executor.forCheck("fooCheck").submit(() -> null));
+    assertThrows(
+        RejectedExecutionException.class, () -> executor.forCheck("slowCheck").submit(() -> null));
+  }
+}
@@ -0,0 +1,44 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.healthcheck;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.inject.Guice;
+import org.junit.Test;
+
+public class HealthCheckExtensionApiModuleTest {
+
+  @Test
+  public void shouldExecuteChecksOnPlatformThreadsByDefault() throws Exception {
+    ListeningExecutorService executor = createExecutor(HealthCheckConfig.DEFAULT_CONFIG);
+
+    assertThat(executor.submit(() -> Thread.currentThread().isVirtual()).get()).isFalse();
+  }
+
+  @Test
+  public void shouldExecuteChecksOnVirtualThreadsWhenConfigured() throws Exception {
+    ListeningExecutorService executor =
+        createExecutor(new HealthCheckConfig("[healthcheck]\n" + "executor = virtual"));
+
+    assertThat(executor.submit(() -> Thread.currentThread().isVirtual()).get()).isTrue();
+  }
+
+  private ListeningExecutorService createExecutor(HealthCheckConfig config) {
+    return Guice.createInjector(new HealthCheckExtensionApiModule(config))
+        .getInstance(ListeningExecutorService.class);
+  }
+}
@@ -120,7 +120,7 @@ public class HealthCheckIT extends AbstractHealthCheckIntegrationTest {
   }
 
   @Test
-  public void shouldNotRunChecksWhenOneFails() throws Exception {
+  public void shouldRunAllChecksWhenOneFails() throws Exception {
     FakeHealthCheck fakeHealthCheck = plugin.getSysInjector().getInstance(FakeHealthCheck.class);
     fakeHealthCheck.setResult(HealthCheck.Result.FAILED);
 
@@ -135,7 +135,9 @@ public class HealthCheckIT extends AbstractHealthCheckIntegrationTest {
             .map(j -> j.getAsJsonObject().get("result"))
             .map(JsonElement::getAsString)
             .collect(Collectors.toList());
-    assertThat(results).contains("not_run");
+    assertThat(results).contains("failed");
+    assertThat(results).doesNotContain("not_run");
+    assertCheckResult(respJson, JGIT, "passed");
   }
 
   @Test
@@ -0,0 +1,58 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.healthcheck;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.gerrit.testing.GerritJUnit.assertThrows;
+
+import com.google.gerrit.extensions.restapi.Response;
+import com.googlesource.gerrit.plugins.healthcheck.api.FailFlag;
+import com.googlesource.gerrit.plugins.healthcheck.api.HealthCheckLiveEndpoint;
+import java.io.File;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class HealthCheckLiveEndpointTest {
+  @Rule public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void shouldReturnOkWhenFailFlagFileIsAbsent() throws Exception {
+    File failFlagFile = new File(tempFolder.getRoot(), "fail");
+
+    Response<String> resp = liveEndpoint(failFlagFile).apply(null);
+
+    assertThat(resp.statusCode()).isEqualTo(HttpServletResponse.SC_OK);
+    assertThat(resp.value()).isEqualTo(HealthCheckLiveEndpoint.LIVE);
+  }
+
+  @Test
+  public void shouldThrowHealthCheckFailedWhenFailFlagFileExists() throws Exception {
+    File failFlagFile = tempFolder.newFile("fail");
+
+    HealthCheckLiveEndpoint liveEndpoint = liveEndpoint(failFlagFile);
+
+    assertThat(liveEndpoint.isLive()).isFalse();
+    assertThrows(HealthCheckFailedException.class, () -> liveEndpoint.apply(null));
+  }
+
+  private static HealthCheckLiveEndpoint liveEndpoint(File failFlagFile) {
+    HealthCheckConfig config =
+        new HealthCheckConfig(
+            "[healthcheck]\n" + "failFileFlagPath = " + failFlagFile.getAbsolutePath());
+    return new HealthCheckLiveEndpoint(new FailFlag(config));
+  }
+}
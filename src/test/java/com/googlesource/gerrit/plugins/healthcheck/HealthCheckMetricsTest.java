@@ -15,12 +15,28 @@
 package com.googlesource.gerrit.plugins.healthcheck;
 
 import static com.google.common.truth.Truth.assertThat;
+import static com.google.gerrit.testing.GerritJUnit.assertThrows;
 
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.gerrit.extensions.registration.RegistrationHandle;
 import com.google.gerrit.metrics.Counter0;
+import com.google.gerrit.metrics.Counter1;
 import com.google.gerrit.metrics.Description;
 import com.google.gerrit.metrics.DisabledMetricMaker;
+import com.google.gerrit.metrics.Field;
 import com.google.gerrit.metrics.Timer0;
+import com.googlesource.gerrit.plugins.healthcheck.check.AbstractHealthCheck;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheck.Result;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import org.junit.Test;
 
 public class HealthCheckMetricsTest {
@@ -56,9 +72,135 @@ public class HealthCheckMetricsTest {
                 .toString());
   }
 
+  @Test
+  public void shouldExportTheLatencyDistribution() {
+    String testMetricName = "testMetric";
+    TestMetrics testMetrics = new TestMetrics();
+    LatencyDistribution latencyDistribution =
+        new HealthCheckMetrics(testMetrics, testMetricName)
+            .getLatencyDistributionMetrics(new long[] {10L, 100L});
+
+    latencyDistribution.record(5L);
+    latencyDistribution.record(50L);
+    latencyDistribution.record(500L);
+
+    assertThat(testMetrics.counts).containsExactly("10", 1L, "100", 2L, "inf", 3L);
+    assertThat(testMetrics.gauges.get(testMetricName + "/latency_p50").get()).isEqualTo(50L);
+    assertThat(testMetrics.gauges.get(testMetricName + "/latency_p95").get()).isEqualTo(500L);
+    assertThat(testMetrics.gauges.get(testMetricName + "/latency_p99").get()).isEqualTo(500L);
+    assertThat(latencyDistribution.size()).isEqualTo(3);
+    assertThat(latencyDistribution.quantile(0.99)).isEqualTo(500L);
+  }
+
+  @Test
+  public void shouldCountTheExecutionsByResult() {
+    String testMetricName = "testMetric";
+    TestMetrics testMetrics = new TestMetrics();
+    Counter1<Result> resultCounter =
+        new HealthCheckMetrics(testMetrics, testMetricName).getResultCounterMetric();
+
+    resultCounter.increment(Result.PASSED);
+    resultCounter.increment(Result.TIMEOUT);
+    resultCounter.increment(Result.TIMEOUT);
+    resultCounter.increment(Result.NOT_RUN);
+
+    assertThat(testMetrics.metricName).isEqualTo(testMetricName + "/result");
+    assertThat(testMetrics.counts).containsExactly("passed", 1L, "timeout", 2L, "not_run", 1L);
+  }
+
+  @Test
+  public void shouldExportTheStateOfTheLatestResult() {
+    String testMetricName = "testMetric";
+    TestMetrics testMetrics = new TestMetrics();
+    AtomicReference<Result> latestResult = new AtomicReference<>(Result.PASSED);
+    new HealthCheckMetrics(testMetrics, testMetricName)
+        .registerStateMetric(() -> latestResult.get().code());
+    Supplier<?> state = testMetrics.gauges.get(testMetricName + "/state");
+
+    assertThat(state.get()).isEqualTo(0);
+    latestResult.set(Result.TIMEOUT);
+    assertThat(state.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void shouldRecordTheQueueWaitAndTheExecutionLatency() throws Exception {
+    TestMetrics testMetrics = new TestMetrics();
+    ListeningExecutorService executor =
+        MoreExecutors.listeningDecorator(Executors.newSingleThreadExecutor());
+    AbstractHealthCheck check =
+        new AbstractHealthCheck(
+            executor, HealthCheckConfig.DEFAULT_CONFIG, "testCheck", testMetrics) {
+          @Override
+          protected Result doCheck() throws Exception {
+            Thread.sleep(20);
+            return Result.PASSED;
+          }
+        };
+    CountDownLatch release = new CountDownLatch(1);
+    executor.submit(
+        () -> {
+          release.await();
+          return null;
+        });
+
+    AbstractHealthCheck.Execution execution = check.start();
+    Thread.sleep(50);
+    release.countDown();
+
+    assertThat(check.await(execution).result()).isEqualTo(Result.PASSED);
+    assertThat(testMetrics.timers.get("testCheck/queue_wait_latency")).isGreaterThan(0L);
+    assertThat(testMetrics.timers.get("testCheck/execution_latency")).isAtLeast(20L);
+    executor.shutdown();
+  }
+
+  @Test
+  public void shouldExportTheGaugesOfTheExecutorAndOfTheLanes() throws Exception {
+    TestMetrics testMetrics = new TestMetrics();
+    HealthCheckExecutor executor =
+        HealthCheckExecutor.create(
+            new HealthCheckConfig(
+                "[healthcheck \"slowCheck\"]\n"
+                    + "lane = slow\n"
+                    + "[lane \"slow\"]\n"
+                    + "threads = 1\n"
+                    + "queueSize = 1"));
+    new HealthCheckExecutorMetrics(executor, testMetrics).start();
+    assertThat(testMetrics.gauges.keySet())
+        .containsExactly(
+            "executor/active_threads",
+            "executor/queued_tasks",
+            "executor/rejected_tasks",
+            "lane/slow/active_threads",
+            "lane/slow/queued_tasks",
+            "lane/slow/rejected_tasks");
+
+    ListeningExecutorService slowLane = executor.forCheck("slowCheck");
+    CountDownLatch running = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    slowLane.submit(
+        () -> {
+          running.countDown();
+          release.await();
+          return null;
+        });
+    running.await();
+    slowLane.submit(() -> null);
+    assertThrows(RejectedExecutionException.class, () -> slowLane.submit(() -> null));
+
+    assertThat(testMetrics.gauges.get("lane/slow/active_threads").get()).isEqualTo(1);
+    assertThat(testMetrics.gauges.get("lane/slow/queued_tasks").get()).isEqualTo(1);
+    assertThat(testMetrics.gauges.get("lane/slow/rejected_tasks").get()).isEqualTo(1L);
+    assertThat(testMetrics.gauges.get("executor/rejected_tasks").get()).isEqualTo(0L);
+    release.countDown();
+    executor.stop();
+  }
+
   private static class TestMetrics extends DisabledMetricMaker {
     String metricName;
     Description metricDescription;
+    Map<Object, Long> counts = new HashMap<>();
+    Map<String, Supplier<?>> gauges = new HashMap<>();
+    Map<String, Long> timers = new ConcurrentHashMap<>();
 
     @Override
     public Counter0 newCounter(String name, Description desc) {
@@ -74,13 +216,41 @@ public class HealthCheckMetricsTest {
       };
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public <F1> Counter1<F1> newCounter(String name, Description desc, Field<F1> field1) {
+      metricName = name;
+      metricDescription = desc;
+      return (Counter1<F1>)
+          new Counter1<Object>() {
+            @Override
+            public void incrementBy(Object field, long value) {
+              counts.merge(field, value, Long::sum);
+            }
+
+            @Override
+            public void remove() {}
+          };
+    }
+
+    @Override
+    public <V> RegistrationHandle newCallbackMetric(
+        String name, Class<V> valueClass, Description desc, Supplier<V> trigger) {
+      metricName = name;
+      metricDescription = desc;
+      gauges.put(name, trigger);
+      return () -> {};
+    }
+
     @Override
     public Timer0 newTimer(String name, Description desc) {
       metricName = name;
       metricDescription = desc;
       return new Timer0(name) {
         @Override
-        protected void doRecord(long value, TimeUnit unit) {}
+        protected void doRecord(long value, TimeUnit unit) {
+          timers.merge(name, unit.toMillis(value), Long::sum);
+        }
 
         @Override
         public void remove() {}
@@ -0,0 +1,128 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.healthcheck;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.gerrit.extensions.registration.DynamicSet;
+import com.google.gerrit.metrics.DisabledMetricMaker;
+import com.google.gerrit.metrics.MetricMaker;
+import com.googlesource.gerrit.plugins.healthcheck.HealthCheckStatusEndpointTest.TestHealthCheck;
+import com.googlesource.gerrit.plugins.healthcheck.check.GlobalHealthCheck;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheck;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheck.Result;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheck.StatusSummary;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheckProfiles;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheckScheduler;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class HealthCheckProfilesTest {
+  private final ListeningExecutorService executor =
+      MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(10));
+  private final MetricMaker disabledMetricMaker = new DisabledMetricMaker();
+
+  @Test
+  public void shouldEvaluateOnlyTheChecksOfTheProfile() {
+    HealthCheckProfiles profiles =
+        newProfiles("[profile \"git\"]\n" + "check = checkOk\n" + "check = checkOk2");
+
+    StatusSummary status = profiles.evaluate("git");
+
+    assertThat(status.result()).isEqualTo(Result.PASSED);
+    assertThat(status.subChecks().keySet()).containsExactly("checkOk", "checkOk2");
+  }
+
+  @Test
+  public void shouldFailProfileWithAllPolicyWhenOneCheckFails() {
+    HealthCheckProfiles profiles =
+        newProfiles("[profile \"ui\"]\n" + "check = checkOk\n" + "check = checkKo");
+
+    assertThat(profiles.evaluate("ui").result()).isEqualTo(Result.FAILED);
+  }
+
+  @Test
+  public void shouldPassProfileWithAnyPolicyWhenOneCheckPasses() {
+    HealthCheckProfiles profiles =
+        newProfiles(
+            "[profile \"ui\"]\n" + "check = checkOk\n" + "check = checkKo\n" + "policy = any");
+
+    assertThat(profiles.evaluate("ui").result()).isEqualTo(Result.PASSED);
+  }
+
+  @Test
+  public void shouldReportUnregisteredChecksAsNotRun() {
+    HealthCheckProfiles profiles =
+        newProfiles("[profile \"git\"]\n" + "check = checkOk\n" + "check = unknown");
+
+    StatusSummary status = profiles.evaluate("git");
+
+    assertThat(status.result()).isEqualTo(Result.FAILED);
+    assertThat(((StatusSummary) status.subChecks().get("unknown")).result())
+        .isEqualTo(Result.NOT_RUN);
+  }
+
+  @Test
+  public void shouldServeCachedProfileEvaluation() {
+    AtomicInteger executions = new AtomicInteger();
+    HealthCheckConfig config =
+        new HealthCheckConfig("[profile \"git\"]\n" + "check = checkOk\n" + "cacheTtl = 1min");
+    DynamicSet<HealthCheck> healthChecks = new DynamicSet<>();
+    healthChecks.add(
+        "countingCheck",
+        new TestHealthCheck(config, "checkOk", Result.PASSED, 0, disabledMetricMaker) {
+          @Override
+          public Result doCheck() {
+            executions.incrementAndGet();
+            return super.doCheck();
+          }
+        });
+    HealthCheckProfiles profiles = newProfiles(config, healthChecks);
+
+    StatusSummary first = profiles.evaluate("git");
+    StatusSummary second = profiles.evaluate("git");
+
+    assertThat(second).isSameInstanceAs(first);
+    assertThat(executions.get()).isEqualTo(1);
+  }
+
+  private HealthCheckProfiles newProfiles(String configText) {
+    HealthCheckConfig config = new HealthCheckConfig(configText);
+    DynamicSet<HealthCheck> healthChecks = new DynamicSet<>();
+    healthChecks.add(
+        "passingCheck",
+        new TestHealthCheck(config, "checkOk", Result.PASSED, 0, disabledMetricMaker));
+    healthChecks.add(
+        "otherPassingCheck",
+        new TestHealthCheck(config, "checkOk2", Result.PASSED, 0, disabledMetricMaker));
+    healthChecks.add(
+        "failingCheck",
+        new TestHealthCheck(config, "checkKo", Result.FAILED, 0, disabledMetricMaker));
+    return newProfiles(config, healthChecks);
+  }
+
+  private HealthCheckProfiles newProfiles(
+      HealthCheckConfig config, DynamicSet<HealthCheck> healthChecks) {
+    GlobalHealthCheck globalHealthCheck =
+        new GlobalHealthCheck(healthChecks, executor, config, disabledMetricMaker);
+    return new HealthCheckProfiles(
+        config,
+        globalHealthCheck,
+        new HealthCheckScheduler(healthChecks, globalHealthCheck, executor, config));
+  }
+}
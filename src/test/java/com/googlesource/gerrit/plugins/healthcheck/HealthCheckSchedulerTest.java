@@ -0,0 +1,293 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.healthcheck;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.googlesource.gerrit.plugins.healthcheck.check.HealthCheckNames.GLOBAL;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.gerrit.extensions.registration.DynamicSet;
+import com.google.gerrit.extensions.registration.RegistrationHandle;
+import com.google.gerrit.metrics.Description;
+import com.google.gerrit.metrics.DisabledMetricMaker;
+import com.googlesource.gerrit.plugins.healthcheck.HealthCheckStatusEndpointTest.TestHealthCheck;
+import com.googlesource.gerrit.plugins.healthcheck.check.AbstractHealthCheck;
+import com.googlesource.gerrit.plugins.healthcheck.check.GlobalHealthCheck;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheck;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheck.Result;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheck.StatusSummary;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheckScheduler;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheckScheduler.Snapshot;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.After;
+import org.junit.Test;
+
+public class HealthCheckSchedulerTest {
+  private static final long WAIT_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(10);
+
+  private final ListeningExecutorService executor =
+      MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
+  private final CountDownLatch blockedCheckLatch = new CountDownLatch(1);
+  private final GaugesMetricMaker metricMaker = new GaugesMetricMaker();
+
+  private HealthCheckScheduler scheduler;
+
+  @After
+  public void tearDown() {
+    blockedCheckLatch.countDown();
+    if (scheduler != null) {
+      scheduler.stop();
+    }
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void shouldBeDisabledByDefault() {
+    scheduler = newScheduler(new DynamicSet<>(), HealthCheckConfig.DEFAULT_CONFIG);
+
+    assertThat(scheduler.isEnabled()).isFalse();
+  }
+
+  @Test
+  public void shouldReportFailedUntilChecksHaveRun() {
+    scheduler = createScheduler(Result.PASSED);
+
+    assertThat(scheduler.getLatestStatus().result()).isEqualTo(Result.FAILED);
+  }
+
+  @Test
+  public void shouldReportLatestResultsOfScheduledChecks() throws Exception {
+    scheduler = createScheduler(Result.PASSED);
+    scheduler.start();
+
+    StatusSummary status = waitForResult(Result.PASSED);
+
+    assertThat(status.subChecks()).containsKey("checkOk");
+  }
+
+  @Test
+  public void shouldReportFailureOfScheduledChecks() throws Exception {
+    scheduler = createScheduler(Result.FAILED);
+    scheduler.start();
+
+    StatusSummary status = waitForSubCheckResult("checkOk", Result.FAILED);
+
+    assertThat(status.result()).isEqualTo(Result.FAILED);
+  }
+
+  @Test
+  public void shouldChangeVersionOnlyWhenResultsChange() throws Exception {
+    scheduler = createScheduler(Result.PASSED);
+    scheduler.start();
+
+    Snapshot changed = scheduler.whenChanged(0L).get(WAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    assertThat(changed.version()).isEqualTo(1L);
+    waitForResult(Result.PASSED);
+
+    Thread.sleep(100);
+    assertThat(scheduler.getLatestSnapshot().version()).isEqualTo(1L);
+    assertThat(scheduler.whenChanged(1L).isDone()).isFalse();
+    assertThat(scheduler.whenChanged(0L).isDone()).isTrue();
+  }
+
+  @Test
+  public void shouldRunChecksWithInvalidIntervalAtTheGlobalInterval() throws Exception {
+    HealthCheckConfig config =
+        new HealthCheckConfig(
+            "[healthcheck]\n"
+                + "interval = 10ms\n"
+                + "[healthcheck \"checkOk\"]\n"
+                + "interval = 0");
+    scheduler = createScheduler(config, Result.PASSED);
+    scheduler.start();
+
+    waitForResult(Result.PASSED);
+  }
+
+  @Test
+  public void shouldNotDelayOtherChecksWhileACheckIsBlocked() throws Exception {
+    HealthCheckConfig config =
+        new HealthCheckConfig("[healthcheck]\n" + "interval = 10ms\n" + "timeout = 1m");
+    DynamicSet<HealthCheck> healthChecks = new DynamicSet<>();
+    for (int i = 0; i < 8; i++) {
+      healthChecks.add("blockedCheck" + i, new BlockedHealthCheck(config, "checkBlocked" + i));
+    }
+    healthChecks.add(
+        "testHealthCheck",
+        new TestHealthCheck(config, "checkOk", Result.PASSED, 0, new DisabledMetricMaker()));
+    scheduler = newScheduler(healthChecks, config);
+    scheduler.start();
+
+    StatusSummary status = waitForSubCheckResult("checkOk", Result.PASSED);
+
+    assertThat(hasSubCheckResult(status, "checkBlocked0", Result.NOT_RUN)).isTrue();
+  }
+
+  @Test
+  public void shouldExportTheScheduledStatusAsGlobalState() throws Exception {
+    scheduler = createScheduler(Result.FAILED);
+    scheduler.start();
+
+    waitForSubCheckResult("checkOk", Result.FAILED);
+
+    assertThat(metricMaker.gauges.get(GLOBAL + "/state").get()).isEqualTo(Result.FAILED.code());
+  }
+
+  @Test
+  public void shouldNotRunChecksDependingOnAFailedCheck() throws Exception {
+    HealthCheckConfig config =
+        new HealthCheckConfig(
+            "[healthcheck]\n"
+                + "interval = 10ms\n"
+                + "[healthcheck \"checkDependent\"]\n"
+                + "dependsOn = checkKo\n"
+                + "[healthcheck \"checkTransitive\"]\n"
+                + "dependsOn = checkDependent");
+    AtomicInteger dependentExecutions = new AtomicInteger();
+    DynamicSet<HealthCheck> healthChecks = new DynamicSet<>();
+    healthChecks.add(
+        "failingCheck",
+        new TestHealthCheck(config, "checkKo", Result.FAILED, 0, new DisabledMetricMaker()));
+    healthChecks.add(
+        "dependentCheck",
+        new TestHealthCheck(config, "checkDependent", Result.PASSED, 0, new DisabledMetricMaker()) {
+          @Override
+          public Result doCheck() {
+            dependentExecutions.incrementAndGet();
+            return super.doCheck();
+          }
+        });
+    healthChecks.add(
+        "transitiveCheck",
+        new TestHealthCheck(
+            config, "checkTransitive", Result.PASSED, 0, new DisabledMetricMaker()));
+    scheduler = newScheduler(healthChecks, config);
+    scheduler.start();
+
+    waitForSubCheckResult("checkDependent", Result.NOT_RUN);
+    StatusSummary status = waitForSubCheckResult("checkTransitive", Result.NOT_RUN);
+    int executions = dependentExecutions.get();
+    Thread.sleep(100);
+
+    assertThat(hasSubCheckResult(status, "checkKo", Result.FAILED)).isTrue();
+    assertThat(dependentExecutions.get()).isEqualTo(executions);
+  }
+
+  @Test
+  public void shouldRunChecksWithCyclicDependencies() throws Exception {
+    HealthCheckConfig config =
+        new HealthCheckConfig(
+            "[healthcheck]\n"
+                + "interval = 10ms\n"
+                + "[healthcheck \"checkFirst\"]\n"
+                + "dependsOn = checkSecond\n"
+                + "[healthcheck \"checkSecond\"]\n"
+                + "dependsOn = checkFirst");
+    DynamicSet<HealthCheck> healthChecks = new DynamicSet<>();
+    healthChecks.add(
+        "firstCheck",
+        new TestHealthCheck(config, "checkFirst", Result.PASSED, 0, new DisabledMetricMaker()));
+    healthChecks.add(
+        "secondCheck",
+        new TestHealthCheck(config, "checkSecond", Result.PASSED, 0, new DisabledMetricMaker()));
+    scheduler = newScheduler(healthChecks, config);
+    scheduler.start();
+
+    waitForResult(Result.PASSED);
+  }
+
+  private HealthCheckScheduler createScheduler(Result checkResult) {
+    return createScheduler(
+        new HealthCheckConfig("[healthcheck]\n" + "interval = 10ms"), checkResult);
+  }
+
+  private HealthCheckScheduler createScheduler(HealthCheckConfig config, Result checkResult) {
+    DynamicSet<HealthCheck> healthChecks = new DynamicSet<>();
+    healthChecks.add(
+        "testHealthCheck",
+        new TestHealthCheck(config, "checkOk", checkResult, 0, new DisabledMetricMaker()));
+    return newScheduler(healthChecks, config);
+  }
+
+  private HealthCheckScheduler newScheduler(
+      DynamicSet<HealthCheck> healthChecks, HealthCheckConfig config) {
+    return new HealthCheckScheduler(
+        healthChecks,
+        new GlobalHealthCheck(healthChecks, executor, config, metricMaker),
+        executor,
+        config);
+  }
+
+  private static class GaugesMetricMaker extends DisabledMetricMaker {
+    private final Map<String, Supplier<?>> gauges = new ConcurrentHashMap<>();
+
+    @Override
+    public <V> RegistrationHandle newCallbackMetric(
+        String name, Class<V> valueClass, Description desc, Supplier<V> trigger) {
+      gauges.put(name, trigger);
+      return () -> {};
+    }
+  }
+
+  private class BlockedHealthCheck extends AbstractHealthCheck {
+    BlockedHealthCheck(HealthCheckConfig config, String checkName) {
+      super(executor, config, checkName, new DisabledMetricMaker());
+    }
+
+    @Override
+    protected Result doCheck() {
+      Uninterruptibles.awaitUninterruptibly(blockedCheckLatch);
+      return Result.PASSED;
+    }
+  }
+
+  private StatusSummary waitForResult(Result expected) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + WAIT_TIMEOUT_MS;
+    StatusSummary status = scheduler.getLatestStatus();
+    while (status.result() != expected && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+      status = scheduler.getLatestStatus();
+    }
+    assertThat(status.result()).isEqualTo(expected);
+    return status;
+  }
+
+  private StatusSummary waitForSubCheckResult(String checkName, Result expected)
+      throws InterruptedException {
+    long deadline = System.currentTimeMillis() + WAIT_TIMEOUT_MS;
+    StatusSummary status = scheduler.getLatestStatus();
+    while (!hasSubCheckResult(status, checkName, expected)
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+      status = scheduler.getLatestStatus();
+    }
+    assertThat(hasSubCheckResult(status, checkName, expected)).isTrue();
+    return status;
+  }
+
+  private static boolean hasSubCheckResult(
+      StatusSummary status, String checkName, Result expected) {
+    Object subCheck = status.subChecks().get(checkName);
+    return subCheck instanceof StatusSummary summary && summary.result() == expected;
+  }
+}
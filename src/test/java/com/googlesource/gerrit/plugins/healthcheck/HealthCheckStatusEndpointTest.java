@@ -21,6 +21,7 @@ import static com.googlesource.gerrit.plugins.healthcheck.HealthCheckConfig.DEFA
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.gerrit.extensions.registration.DynamicSet;
+import com.google.gerrit.extensions.restapi.BadRequestException;
 import com.google.gerrit.extensions.restapi.Response;
 import com.google.gerrit.metrics.DisabledMetricMaker;
 import com.google.gerrit.metrics.MetricMaker;
@@ -32,6 +33,9 @@ import com.googlesource.gerrit.plugins.healthcheck.api.HealthCheckStatusEndpoint
 import com.googlesource.gerrit.plugins.healthcheck.check.AbstractHealthCheck;
 import com.googlesource.gerrit.plugins.healthcheck.check.GlobalHealthCheck;
 import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheck;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import javax.servlet.http.HttpServletResponse;
 import org.junit.Test;
@@ -170,8 +174,103 @@ public class HealthCheckStatusEndpointTest {
     assertThrows(HealthCheckFailedException.class, () -> healthCheckApi.apply(null));
   }
 
+  @Test
+  public void shouldCompleteAsyncStatusWhenAllChecksArePassing() throws Exception {
+    HealthCheckStatusEndpoint healthCheckApi = asyncTestEndpoint(HealthCheck.Result.PASSED);
+
+    Response<?> resp = healthCheckApi.applyAsync().get();
+
+    assertThat(resp.statusCode()).isEqualTo(HttpServletResponse.SC_OK);
+  }
+
+  @Test
+  public void shouldFailAsyncStatusWhenAtLeastOneCheckIsFailing() throws Exception {
+    HealthCheckStatusEndpoint healthCheckApi = asyncTestEndpoint(HealthCheck.Result.FAILED);
+
+    ExecutionException thrown =
+        assertThrows(ExecutionException.class, () -> healthCheckApi.applyAsync().get());
+    assertThat(thrown).hasCauseThat().isInstanceOf(HealthCheckFailedException.class);
+  }
+
+  @Test
+  public void shouldReturnOkWhenTheSelectedChecksArePassing() throws Exception {
+    HealthCheckStatusEndpoint healthCheckApi = subsetTestEndpoint();
+
+    Response<Map<String, Object>> resp = healthCheckApi.applyToChecks(Set.of("checkOk"));
+
+    assertThat(resp.statusCode()).isEqualTo(HttpServletResponse.SC_OK);
+    assertThat(resp.value()).containsKey("checkOk");
+    assertThat(resp.value()).doesNotContainKey("checkKo");
+  }
+
+  @Test
+  public void shouldRejectUnknownSelectedChecks() throws Exception {
+    HealthCheckStatusEndpoint healthCheckApi = subsetTestEndpoint();
+
+    assertThrows(BadRequestException.class, () -> healthCheckApi.applyToChecks(Set.of("unknown")));
+  }
+
+  private HealthCheckStatusEndpoint subsetTestEndpoint() {
+    Injector injector =
+        testInjector(
+            new AbstractModule() {
+              @Override
+              protected void configure() {
+                HealthCheckConfig config =
+                    new HealthCheckConfig("[healthcheck]\n" + "timeout = 1s");
+                DynamicSet<HealthCheck> healthChecks = new DynamicSet<>();
+                healthChecks.add(
+                    "passingHealthCheck",
+                    new TestHealthCheck(
+                        config, "checkOk", HealthCheck.Result.PASSED, 0, disabledMetricMaker));
+                healthChecks.add(
+                    "failingHealthCheck",
+                    new TestHealthCheck(
+                        config, "checkKo", HealthCheck.Result.FAILED, 0, disabledMetricMaker));
+                GlobalHealthCheck globalHealthCheck =
+                    new GlobalHealthCheck(healthChecks, executor, config, disabledMetricMaker);
+                bind(GlobalHealthCheck.class).toInstance(globalHealthCheck);
+                bind(HealthCheckConfig.class).toInstance(config);
+              }
+            });
+    return injector.getInstance(HealthCheckStatusEndpoint.class);
+  }
+
+  private HealthCheckStatusEndpoint asyncTestEndpoint(HealthCheck.Result checkResult) {
+    Injector injector =
+        testInjector(
+            new AbstractModule() {
+              @Override
+              protected void configure() {
+                HealthCheckConfig config =
+                    new HealthCheckConfig("[healthcheck]\n" + "timeout = 1s");
+                DynamicSet<HealthCheck> healthChecks = new DynamicSet<>();
+                healthChecks.add(
+                    "testHealthCheck",
+                    new TestHealthCheck(config, "checkOk", checkResult, 0, disabledMetricMaker));
+                GlobalHealthCheck globalHealthCheck =
+                    new GlobalHealthCheck(
+                        healthChecks,
+                        MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(2)),
+                        config,
+                        disabledMetricMaker);
+                bind(GlobalHealthCheck.class).toInstance(globalHealthCheck);
+                bind(HealthCheckConfig.class).toInstance(config);
+              }
+            });
+    return injector.getInstance(HealthCheckStatusEndpoint.class);
+  }
+
   private Injector testInjector(AbstractModule testModule) {
     return Guice.createInjector(
-        new HealthCheckExtensionApiModule(), new HealthCheckApiModule(), testModule);
+        new HealthCheckExtensionApiModule(),
+        new HealthCheckApiModule(),
+        new AbstractModule() {
+          @Override
+          protected void configure() {
+            bind(MetricMaker.class).toInstance(disabledMetricMaker);
+          }
+        },
+        testModule);
   }
 }
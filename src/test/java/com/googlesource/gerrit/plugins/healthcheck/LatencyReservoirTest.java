@@ -0,0 +1,57 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.healthcheck;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.googlesource.gerrit.plugins.healthcheck.check.LatencyReservoir;
+import org.junit.Test;
+
+public class LatencyReservoirTest {
+
+  @Test
+  public void shouldReturnZeroWhenEmpty() {
+    LatencyReservoir reservoir = new LatencyReservoir();
+
+    assertThat(reservoir.size()).isEqualTo(0);
+    assertThat(reservoir.quantile(0.99)).isEqualTo(0L);
+  }
+
+  @Test
+  public void shouldReturnQuantilesOfRecordedLatencies() {
+    LatencyReservoir reservoir = new LatencyReservoir();
+    for (long latency = 1; latency <= 100; latency++) {
+      reservoir.record(latency);
+    }
+
+    assertThat(reservoir.size()).isEqualTo(100);
+    assertThat(reservoir.quantile(0.5)).isEqualTo(50L);
+    assertThat(reservoir.quantile(0.99)).isEqualTo(99L);
+    assertThat(reservoir.quantile(1.0)).isEqualTo(100L);
+  }
+
+  @Test
+  public void shouldKeepOnlyTheMostRecentLatencies() {
+    LatencyReservoir reservoir = new LatencyReservoir();
+    for (int i = 0; i < 1000; i++) {
+      reservoir.record(1000L);
+    }
+    for (int i = 0; i < 1000; i++) {
+      reservoir.record(10L);
+    }
+
+    assertThat(reservoir.quantile(1.0)).isEqualTo(10L);
+  }
+}
@@ -0,0 +1,139 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.healthcheck;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.primitives.Bytes;
+import com.googlesource.gerrit.plugins.healthcheck.api.StatusCborEncoder;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheck.Result;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheck.StatusSummary;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheckNames;
+import com.googlesource.gerrit.plugins.healthcheck.filter.HealthCheckStatusFilter;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class StatusCborEncoderTest {
+
+  @Test
+  public void shouldEncodeChecksAsArraysIndexedByName() {
+    Map<String, Object> status =
+        Map.of(
+            "ts", 1L,
+            "elapsed", 2L,
+            "jgit", new StatusSummary(Result.PASSED, 3L, 4L, Collections.emptyMap()),
+            "auth", new StatusSummary(Result.TIMEOUT, 24L, 500L, Collections.emptyMap(), 5L));
+
+    byte[] encoded = StatusCborEncoder.encode(status);
+
+    assertThat(encoded)
+        .isEqualTo(
+            Bytes.concat(
+                new byte[] {(byte) 0x84, 0x01, 0x02, (byte) 0x82, 0x64},
+                "auth".getBytes(StandardCharsets.UTF_8),
+                new byte[] {0x64},
+                "jgit".getBytes(StandardCharsets.UTF_8),
+                new byte[] {
+                  (byte) 0x82,
+                  (byte) 0x84,
+                  0x02,
+                  0x18,
+                  0x18,
+                  0x19,
+                  0x01,
+                  (byte) 0xf4,
+                  0x05,
+                  (byte) 0x83,
+                  0x00,
+                  0x03,
+                  0x04
+                }));
+  }
+
+  @Test
+  public void shouldEncodeCostOfChecks() {
+    Map<String, Object> status =
+        Map.of(
+            "ts",
+            1L,
+            "elapsed",
+            2L,
+            "jgit",
+            new StatusSummary(Result.PASSED, 3L, 4L, Collections.emptyMap(), null, 1000L, 25L));
+
+    byte[] encoded = StatusCborEncoder.encode(status);
+
+    assertThat(encoded)
+        .isEqualTo(
+            Bytes.concat(
+                new byte[] {(byte) 0x84, 0x01, 0x02, (byte) 0x81, 0x64},
+                "jgit".getBytes(StandardCharsets.UTF_8),
+                new byte[] {
+                  (byte) 0x81,
+                  (byte) 0x86,
+                  0x00,
+                  0x03,
+                  0x04,
+                  (byte) 0xf6,
+                  0x19,
+                  0x03,
+                  (byte) 0xe8,
+                  0x18,
+                  0x19
+                }));
+  }
+
+  @Test
+  public void shouldEncodeReasonOfFailFlag() {
+    byte[] encoded = StatusCborEncoder.encode(Map.of("reason", "down"));
+
+    assertThat(encoded)
+        .isEqualTo(
+            Bytes.concat(
+                new byte[] {(byte) 0x85, 0x00, 0x00, (byte) 0x80, (byte) 0x80, 0x64},
+                "down".getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  public void shouldBeSmallerThanJson() {
+    Map<String, Object> status = new HashMap<>();
+    long ts = System.currentTimeMillis();
+    status.put("ts", ts);
+    status.put("elapsed", 120L);
+    for (String checkName :
+        List.of(
+            HealthCheckNames.JGIT,
+            HealthCheckNames.PROJECTSLIST,
+            HealthCheckNames.QUERYCHANGES,
+            HealthCheckNames.AUTH,
+            HealthCheckNames.ACTIVEWORKERS,
+            HealthCheckNames.DEADLOCK,
+            HealthCheckNames.BLOCKEDTHREADS,
+            HealthCheckNames.CHANGES_INDEX)) {
+      status.put(checkName, new StatusSummary(Result.PASSED, ts, 35L, Collections.emptyMap()));
+    }
+
+    byte[] json =
+        (HealthCheckStatusFilter.JSON_MAGIC_STRING + HealthCheckStatusFilter.GSON.toJson(status))
+            .getBytes(StandardCharsets.UTF_8);
+    byte[] cbor = StatusCborEncoder.encode(status);
+
+    assertThat(cbor.length * 2).isLessThan(json.length);
+  }
+}
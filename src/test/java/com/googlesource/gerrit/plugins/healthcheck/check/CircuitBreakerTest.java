@@ -0,0 +1,111 @@
+// Copyright (C) 2021 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.healthcheck.check;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.googlesource.gerrit.plugins.healthcheck.check.CircuitBreaker.Admission.ALLOWED;
+import static com.googlesource.gerrit.plugins.healthcheck.check.CircuitBreaker.Admission.REJECTED;
+import static com.googlesource.gerrit.plugins.healthcheck.check.CircuitBreaker.Admission.TRIAL;
+
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+  private static final long BACKOFF = 100L;
+  private static final long MAX_BACKOFF = 300L;
+
+  private final CircuitBreaker circuitBreaker =
+      new CircuitBreaker("testCheck", 2, BACKOFF, MAX_BACKOFF);
+
+  @Test
+  public void shouldAlwaysAllowWhenDisabled() {
+    CircuitBreaker disabled = new CircuitBreaker("testCheck", 0, BACKOFF, MAX_BACKOFF);
+
+    for (int i = 0; i < 5; i++) {
+      disabled.onResult(disabled.admit(0L), true, 0L);
+    }
+
+    assertThat(disabled.admit(0L)).isEqualTo(ALLOWED);
+  }
+
+  @Test
+  public void shouldOpenAfterConsecutiveFailures() {
+    fail(0L);
+    assertThat(circuitBreaker.admit(0L)).isEqualTo(ALLOWED);
+    fail(0L);
+
+    assertThat(circuitBreaker.admit(BACKOFF - 1)).isEqualTo(REJECTED);
+  }
+
+  @Test
+  public void shouldNotOpenWhenFailuresAreNotConsecutive() {
+    fail(0L);
+    circuitBreaker.onResult(circuitBreaker.admit(0L), false, 0L);
+    fail(0L);
+
+    assertThat(circuitBreaker.admit(0L)).isEqualTo(ALLOWED);
+  }
+
+  @Test
+  public void shouldLetASingleTrialThroughOnceTheBackoffHasElapsed() {
+    open(0L);
+
+    assertThat(circuitBreaker.admit(BACKOFF)).isEqualTo(TRIAL);
+    assertThat(circuitBreaker.admit(BACKOFF)).isEqualTo(REJECTED);
+  }
+
+  @Test
+  public void shouldCloseWhenTheTrialPasses() {
+    open(0L);
+
+    circuitBreaker.onResult(circuitBreaker.admit(BACKOFF), false, BACKOFF);
+
+    assertThat(circuitBreaker.admit(BACKOFF)).isEqualTo(ALLOWED);
+  }
+
+  @Test
+  public void shouldDoubleTheBackoffUpToTheMaximumWhenTheTrialFails() {
+    open(0L);
+
+    long now = BACKOFF;
+    circuitBreaker.onResult(circuitBreaker.admit(now), true, now);
+    assertThat(circuitBreaker.admit(now + 2 * BACKOFF - 1)).isEqualTo(REJECTED);
+    now += 2 * BACKOFF;
+    assertThat(circuitBreaker.admit(now)).isEqualTo(TRIAL);
+
+    circuitBreaker.onResult(TRIAL, true, now);
+    assertThat(circuitBreaker.admit(now + MAX_BACKOFF - 1)).isEqualTo(REJECTED);
+    assertThat(circuitBreaker.admit(now + MAX_BACKOFF)).isEqualTo(TRIAL);
+  }
+
+  @Test
+  public void shouldResetTheBackoffOnceClosed() {
+    open(0L);
+    circuitBreaker.onResult(circuitBreaker.admit(BACKOFF), true, BACKOFF);
+    circuitBreaker.onResult(circuitBreaker.admit(3 * BACKOFF), false, 3 * BACKOFF);
+
+    open(3 * BACKOFF);
+
+    assertThat(circuitBreaker.admit(4 * BACKOFF)).isEqualTo(TRIAL);
+  }
+
+  private void open(long now) {
+    fail(now);
+    fail(now);
+  }
+
+  private void fail(long now) {
+    circuitBreaker.onResult(circuitBreaker.admit(now), true, now);
+  }
+}
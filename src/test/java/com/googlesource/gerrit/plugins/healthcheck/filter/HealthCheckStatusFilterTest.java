@@ -15,10 +15,25 @@
 package com.googlesource.gerrit.plugins.healthcheck.filter;
 
 import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
+import com.google.common.net.HttpHeaders;
+import com.google.gerrit.extensions.restapi.Response;
+import com.google.gerrit.metrics.DisabledMetricMaker;
 import com.google.gerrit.util.http.testutil.FakeHttpServletRequest;
+import com.google.gerrit.util.http.testutil.FakeHttpServletResponse;
+import com.googlesource.gerrit.plugins.healthcheck.HealthCheckConfig;
+import com.googlesource.gerrit.plugins.healthcheck.api.HealthCheckStatusEndpoint;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheck.Result;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheck.StatusSummary;
+import com.googlesource.gerrit.plugins.healthcheck.filter.HealthCheckStatusFilter.StatusResponse;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import org.eclipse.jgit.lib.Config;
 import org.junit.Test;
 
@@ -55,13 +70,172 @@ public class HealthCheckStatusFilterTest {
         .isFalse();
   }
 
+  @Test
+  public void liveRequestsShouldBeHandled() {
+    HealthCheckStatusFilter filter = createFilter(List.of("http://*:8080/"));
+    assertThat(filter.isLiveCheck(createRequest("/config/server/healthcheck~live"))).isTrue();
+    assertThat(filter.isLiveCheck(createRequest("/a/config/server/healthcheck~live"))).isTrue();
+    assertThat(filter.isLiveCheck(createRequest(HEALTHCHECK_PATH))).isFalse();
+    assertThat(filter.isStatusCheck(createRequest("/config/server/healthcheck~live"))).isFalse();
+  }
+
+  @Test
+  public void streamRequestsShouldBeHandled() {
+    HealthCheckStatusFilter filter = createFilter(List.of("http://*:8080/"));
+    assertThat(filter.isStatusStream(createRequest("/config/server/healthcheck~stream"))).isTrue();
+    assertThat(filter.isStatusStream(createRequest("/a/config/server/healthcheck~stream")))
+        .isTrue();
+    assertThat(filter.isStatusStream(createRequest(HEALTHCHECK_PATH))).isFalse();
+  }
+
+  @Test
+  public void cborShouldBeServedOnlyWhenPreferred() {
+    assertThat(acceptsCbor(null)).isFalse();
+    assertThat(acceptsCbor("application/json")).isFalse();
+    assertThat(acceptsCbor("*/*")).isFalse();
+    assertThat(acceptsCbor("application/cbor")).isTrue();
+    assertThat(acceptsCbor("application/json;q=0.5, application/cbor")).isTrue();
+    assertThat(acceptsCbor("Application/CBOR ; q=0.8, */*;q=0.1")).isTrue();
+    assertThat(acceptsCbor("application/cbor;q=0")).isFalse();
+    assertThat(acceptsCbor("application/cbor;q=0.5, application/json")).isFalse();
+    assertThat(acceptsCbor("application/cbor-seq, application/json")).isFalse();
+  }
+
+  @Test
+  public void etagsShouldBeComparedWeakly() {
+    assertThat(HealthCheckStatusFilter.tagOf("W/\"5c0e8f\"")).isEqualTo("5c0e8f");
+    assertThat(HealthCheckStatusFilter.tagOf(" \"5c0e8f\"")).isEqualTo("5c0e8f");
+    assertThat(HealthCheckStatusFilter.tagOf("5c0e8f")).isEqualTo("5c0e8f");
+    assertThat(new StatusResponse(200, false, new byte[0], "5c0e8f").etag())
+        .isEqualTo("W/\"5c0e8f\"");
+  }
+
+  @Test
+  public void statusEventsShouldCarryTheBodyOfTheStatusResponse() {
+    byte[] body = ")]}'\n{\n  \"reason\": \"Fail Flag File exists\"\n}".getBytes(UTF_8);
+    assertThat(new String(StatusChanges.event(new StatusResponse(500, false, body, "f1")), UTF_8))
+        .isEqualTo(
+            "id: f1\nevent: failure\ndata: )]}'\ndata: {\n"
+                + "data:   \"reason\": \"Fail Flag File exists\"\ndata: }\n\n");
+    assertThat(
+            new String(
+                StatusChanges.event(new StatusResponse(200, false, "{}".getBytes(UTF_8), "p1")),
+                UTF_8))
+        .isEqualTo("id: p1\nevent: status\ndata: {}\n\n");
+  }
+
+  @Test
+  public void statusResponsesShouldCarryTheETagOfTheResults() throws Exception {
+    HealthCheckStatusFilter filter = createFilter(new FakeStatusEndpoint(new AtomicLong()));
+
+    FakeHttpServletResponse response = new FakeHttpServletResponse();
+    filter.doFilter(createSyncRequest(HEALTHCHECK_PATH), response, null);
+
+    assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+    assertThat(response.getHeader(HttpHeaders.ETAG)).startsWith("W/\"");
+    assertThat(response.getActualBodyString()).contains("checkOk");
+  }
+
+  @Test
+  public void statusRequestsWithAMatchingETagShouldNotGetTheBody() throws Exception {
+    AtomicLong ts = new AtomicLong(1000L);
+    HealthCheckStatusFilter filter = createFilter(new FakeStatusEndpoint(ts));
+    FakeHttpServletResponse firstResponse = new FakeHttpServletResponse();
+    filter.doFilter(createSyncRequest(HEALTHCHECK_PATH), firstResponse, null);
+    String etag = firstResponse.getHeader(HttpHeaders.ETAG);
+
+    ts.set(2000L);
+    FakeHttpServletRequest request = createSyncRequest(HEALTHCHECK_PATH);
+    request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+    FakeHttpServletResponse response = new FakeHttpServletResponse();
+    filter.doFilter(request, response, null);
+
+    assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_MODIFIED);
+    assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(etag);
+    assertThat(response.getActualBody()).isEmpty();
+  }
+
+  @Test
+  public void statusShouldBeEncodedOnlyOnceForEqualResults() {
+    AtomicLong ts = new AtomicLong(1000L);
+    HealthCheckStatusFilter filter = createFilter(new FakeStatusEndpoint(ts));
+
+    StatusResponse first = filter.scheduledStatusResponse(Set.of("checkOk"), false);
+    StatusResponse second = filter.scheduledStatusResponse(Set.of("checkOk"), false);
+    ts.set(2000L);
+    StatusResponse third = filter.scheduledStatusResponse(Set.of("checkOk"), false);
+
+    assertThat(second.body()).isSameInstanceAs(first.body());
+    assertThat(third.body()).isNotSameInstanceAs(first.body());
+    assertThat(third.tag()).isEqualTo(first.tag());
+  }
+
+  private static boolean acceptsCbor(String accept) {
+    FakeHttpServletRequest request = new FakeHttpServletRequest("gerrit.example.com", 8080, "", "");
+    if (accept != null) {
+      request.addHeader(HttpHeaders.ACCEPT, accept);
+    }
+    return HealthCheckStatusFilter.acceptsCbor(request);
+  }
+
   private HealthCheckStatusFilter createFilter(List<String> listenUrl) {
     Config cfg = new Config();
     cfg.setStringList("httpd", null, "listenUrl", listenUrl);
-    return new HealthCheckStatusFilter(null, "healthcheck", cfg, null);
+    return new HealthCheckStatusFilter(
+        null, null, null, "healthcheck", cfg, HealthCheckConfig.DEFAULT_CONFIG, null);
+  }
+
+  private HealthCheckStatusFilter createFilter(HealthCheckStatusEndpoint statusEndpoint) {
+    Config cfg = new Config();
+    cfg.setStringList("httpd", null, "listenUrl", List.of("http://*:8080/"));
+    return new HealthCheckStatusFilter(
+        statusEndpoint, null, null, "healthcheck", cfg, HealthCheckConfig.DEFAULT_CONFIG, null);
   }
 
   private HttpServletRequest createRequest(String path) {
     return new FakeHttpServletRequest("gerrit.example.com", 8080, "", "").setPathInfo(path);
   }
+
+  private static FakeHttpServletRequest createSyncRequest(String path) {
+    FakeHttpServletRequest request =
+        new FakeHttpServletRequest("gerrit.example.com", 8080, "", "") {
+          @Override
+          public boolean isAsyncSupported() {
+            return false;
+          }
+        };
+    request.setPathInfo(path);
+    return request;
+  }
+
+  /**
+   * Status endpoint returning a new status for every request, with the same results of the checks
+   * and the given timestamp.
+   */
+  private static class FakeStatusEndpoint extends HealthCheckStatusEndpoint {
+    private final AtomicLong ts;
+
+    FakeStatusEndpoint(AtomicLong ts) {
+      super(null, null, null, null, HealthCheckConfig.DEFAULT_CONFIG, new DisabledMetricMaker());
+      this.ts = ts;
+    }
+
+    @Override
+    public Response<Map<String, Object>> applyToChecks(Set<String> checkNames) {
+      return status();
+    }
+
+    @Override
+    public Response<Map<String, Object>> latestScheduledStatus(Set<String> checkNames) {
+      return status();
+    }
+
+    private Response<Map<String, Object>> status() {
+      Map<String, Object> status = new HashMap<>();
+      status.put("checkOk", new StatusSummary(Result.PASSED, ts.get(), 10L, Map.of()));
+      status.put("ts", ts.get());
+      status.put("elapsed", 10L);
+      return Response.ok(status);
+    }
+  }
 }
@@ -0,0 +1,434 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.healthcheck.filter;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.net.HttpHeaders;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.gerrit.extensions.registration.DynamicSet;
+import com.google.gerrit.extensions.restapi.Response;
+import com.google.gerrit.metrics.DisabledMetricMaker;
+import com.google.gerrit.util.http.testutil.FakeHttpServletRequest;
+import com.google.gerrit.util.http.testutil.FakeHttpServletResponse;
+import com.googlesource.gerrit.plugins.healthcheck.HealthCheckConfig;
+import com.googlesource.gerrit.plugins.healthcheck.HealthCheckFailedException;
+import com.googlesource.gerrit.plugins.healthcheck.api.HealthCheckStatusEndpoint;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheck.Result;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheck.StatusSummary;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheckScheduler;
+import com.googlesource.gerrit.plugins.healthcheck.check.HealthCheckScheduler.Snapshot;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import org.eclipse.jgit.lib.Config;
+import org.junit.After;
+import org.junit.Test;
+
+public class StatusChangesTest {
+  private static final long WAIT_MS = 5000L;
+  private static final long NO_HEARTBEAT = TimeUnit.HOURS.toMillis(1);
+
+  private final HealthCheckConfig config =
+      new HealthCheckConfig("[healthcheck]\n" + "interval = 1m");
+  private final FakeScheduler scheduler = new FakeScheduler(config);
+  private final HealthCheckStatusFilter statusFilter = newFilter(scheduler, config);
+  private StatusChanges statusChanges;
+
+  @After
+  public void tearDown() {
+    if (statusChanges != null) {
+      statusChanges.stop();
+    }
+  }
+
+  @Test
+  public void longPollShouldReplyNotModifiedWhenNothingChangesWithinTheTimeout() throws Exception {
+    statusChanges = new StatusChanges(scheduler, statusFilter, WAIT_MS, NO_HEARTBEAT);
+    String etag = currentETag();
+    AsyncRequest request = new AsyncRequest();
+    AsyncResponse response = new AsyncResponse();
+
+    statusChanges.waitForChange(request, response, etag);
+    assertThat(request.asyncContext.isCompleted()).isFalse();
+    request.asyncContext.fireTimeout();
+
+    assertThat(request.asyncContext.isCompleted()).isTrue();
+    assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_MODIFIED);
+    assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(etag);
+  }
+
+  @Test
+  public void longPollShouldStopAwaitingTheChangesOnceTimedOut() throws Exception {
+    statusChanges = new StatusChanges(scheduler, statusFilter, WAIT_MS, NO_HEARTBEAT);
+    AsyncRequest request = new AsyncRequest();
+
+    statusChanges.waitForChange(request, new AsyncResponse(), currentETag());
+    assertThat(scheduler.pendingChanges()).isEqualTo(1);
+    request.asyncContext.fireTimeout();
+
+    assertThat(scheduler.pendingChanges()).isEqualTo(0);
+  }
+
+  @Test
+  public void longPollShouldReplyWithTheChangedStatus() throws Exception {
+    statusChanges = new StatusChanges(scheduler, statusFilter, WAIT_MS, NO_HEARTBEAT);
+    String etag = currentETag();
+    AsyncRequest request = new AsyncRequest();
+    AsyncResponse response = new AsyncResponse();
+
+    statusChanges.waitForChange(request, response, etag);
+    scheduler.change(Result.DISABLED);
+
+    assertThat(request.asyncContext.awaitCompletion()).isTrue();
+    assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_OK);
+    assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(currentETag());
+    assertThat(response.getHeader(HttpHeaders.ETAG)).isNotEqualTo(etag);
+    assertThat(response.body()).contains("checkOk");
+  }
+
+  @Test
+  public void longPollShouldReplyNotModifiedWhenTheChangeMatchesIfNoneMatch() throws Exception {
+    statusChanges = new StatusChanges(scheduler, statusFilter, WAIT_MS, NO_HEARTBEAT);
+    scheduler.change(Result.DISABLED);
+    String changedETag = currentETag();
+    scheduler.change(Result.PASSED);
+    AsyncRequest request = new AsyncRequest();
+    request.addHeader(HttpHeaders.IF_NONE_MATCH, changedETag);
+    AsyncResponse response = new AsyncResponse();
+
+    statusChanges.waitForChange(request, response, currentETag());
+    scheduler.change(Result.DISABLED);
+
+    assertThat(request.asyncContext.awaitCompletion()).isTrue();
+    assertThat(response.getStatus()).isEqualTo(HttpServletResponse.SC_NOT_MODIFIED);
+    assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(changedETag);
+    assertThat(response.body()).isEmpty();
+  }
+
+  @Test
+  public void streamShouldResumeAfterTheLastEventId() throws Exception {
+    statusChanges = new StatusChanges(scheduler, statusFilter, WAIT_MS, NO_HEARTBEAT);
+    String tag = HealthCheckStatusFilter.tagOf(currentETag());
+    AsyncResponse newClient = new AsyncResponse();
+    AsyncRequest reconnectingRequest = new AsyncRequest();
+    reconnectingRequest.addHeader("Last-Event-ID", tag);
+    AsyncResponse reconnectingClient = new AsyncResponse();
+
+    statusChanges.stream(new AsyncRequest(), newClient);
+    statusChanges.stream(reconnectingRequest, reconnectingClient);
+
+    assertThat(newClient.body()).startsWith("id: " + tag + "\n");
+    assertThat(reconnectingClient.body()).isEmpty();
+
+    scheduler.change(Result.DISABLED);
+    String changedTag = HealthCheckStatusFilter.tagOf(currentETag());
+
+    assertThat(awaitUntil(() -> reconnectingClient.body().contains("id: " + changedTag))).isTrue();
+    assertThat(reconnectingClient.body()).startsWith("id: " + changedTag + "\n");
+  }
+
+  @Test
+  public void streamShouldSendHeartbeatsWhileNothingChanges() throws Exception {
+    statusChanges = new StatusChanges(scheduler, statusFilter, WAIT_MS, 50L);
+    AsyncResponse response = new AsyncResponse();
+
+    statusChanges.stream(new AsyncRequest(), response);
+
+    assertThat(awaitUntil(() -> response.body().contains(": heartbeat\n\n"))).isTrue();
+  }
+
+  @Test
+  public void streamShouldBeClosedWhenTooManyEventsArePending() throws Exception {
+    statusChanges = new StatusChanges(scheduler, statusFilter, WAIT_MS, NO_HEARTBEAT);
+    AsyncRequest request = new AsyncRequest();
+    AsyncResponse response = new AsyncResponse();
+    response.out.ready = false;
+
+    statusChanges.stream(request, response);
+    int changes = 0;
+    while (!request.asyncContext.isCompleted() && changes < 20) {
+      scheduler.change(changes++ % 2 == 0 ? Result.DISABLED : Result.PASSED);
+      awaitUntil(() -> request.asyncContext.isCompleted() || scheduler.pendingChanges() == 1);
+    }
+
+    assertThat(request.asyncContext.isCompleted()).isTrue();
+    assertThat(changes).isEqualTo(16);
+    assertThat(response.body()).isEmpty();
+    assertThat(scheduler.pendingChanges()).isEqualTo(0);
+  }
+
+  private String currentETag() {
+    return statusFilter.scheduledStatusResponse(Set.of(), false).etag();
+  }
+
+  private static boolean awaitUntil(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + WAIT_MS;
+    while (!condition.getAsBoolean()) {
+      if (System.currentTimeMillis() > deadline) {
+        return false;
+      }
+      Thread.sleep(10L);
+    }
+    return true;
+  }
+
+  private static HealthCheckStatusFilter newFilter(
+      HealthCheckScheduler scheduler, HealthCheckConfig config) {
+    Config cfg = new Config();
+    cfg.setStringList("httpd", null, "listenUrl", List.of("http://*:8080/"));
+    return new HealthCheckStatusFilter(
+        new HealthCheckStatusEndpoint(
+            null, scheduler, null, null, config, new DisabledMetricMaker()) {
+          @Override
+          public Response<Map<String, Object>> latestScheduledStatus(Set<String> checkNames)
+              throws HealthCheckFailedException {
+            return toResponse(scheduler.getLatestStatus(checkNames));
+          }
+        },
+        null,
+        scheduler,
+        "healthcheck",
+        cfg,
+        config,
+        null);
+  }
+
+  /** Scheduler whose snapshots are changed by the tests, keeping track of the awaited changes. */
+  private static class FakeScheduler extends HealthCheckScheduler {
+    private final List<SettableFuture<Snapshot>> changes = new ArrayList<>();
+    private Snapshot snapshot = snapshot(0L, Result.PASSED);
+
+    FakeScheduler(HealthCheckConfig config) {
+      super(new DynamicSet<>(), null, null, config);
+    }
+
+    @Override
+    public synchronized Snapshot getLatestSnapshot() {
+      return snapshot;
+    }
+
+    @Override
+    public synchronized StatusSummary getLatestStatus() {
+      return snapshot.status();
+    }
+
+    @Override
+    public synchronized ListenableFuture<Snapshot> whenChanged(long version) {
+      if (snapshot.version() != version) {
+        return Futures.immediateFuture(snapshot);
+      }
+      SettableFuture<Snapshot> change = SettableFuture.create();
+      changes.add(change);
+      return change;
+    }
+
+    void change(Result result) {
+      List<SettableFuture<Snapshot>> awaited;
+      Snapshot changed;
+      synchronized (this) {
+        snapshot = snapshot(snapshot.version() + 1, result);
+        changed = snapshot;
+        awaited = new ArrayList<>(changes);
+        changes.clear();
+      }
+      awaited.forEach(change -> change.set(changed));
+    }
+
+    synchronized long pendingChanges() {
+      return changes.stream().filter(change -> !change.isDone()).count();
+    }
+
+    private static Snapshot snapshot(long version, Result result) {
+      long ts = System.currentTimeMillis();
+      return new Snapshot(
+          version,
+          new StatusSummary(
+              Result.PASSED,
+              ts,
+              0L,
+              Map.of("checkOk", new StatusSummary(result, ts, 0L, Map.of()))));
+    }
+  }
+
+  private static class AsyncRequest extends FakeHttpServletRequest {
+    FakeAsyncContext asyncContext;
+
+    AsyncRequest() {
+      super("gerrit.example.com", 8080, "", "");
+    }
+
+    @Override
+    public boolean isAsyncSupported() {
+      return true;
+    }
+
+    @Override
+    public AsyncContext startAsync() {
+      asyncContext = new FakeAsyncContext(this);
+      return asyncContext;
+    }
+  }
+
+  private static class AsyncResponse extends FakeHttpServletResponse {
+    final FakeOutputStream out = new FakeOutputStream();
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+      return out;
+    }
+
+    @Override
+    public void flushBuffer() {}
+
+    String body() {
+      return out.toString();
+    }
+  }
+
+  /** Output stream of a client which can be made too slow to receive the events. */
+  private static class FakeOutputStream extends ServletOutputStream {
+    private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+    volatile boolean ready = true;
+
+    @Override
+    public boolean isReady() {
+      return ready;
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {}
+
+    @Override
+    public synchronized void write(int b) {
+      data.write(b);
+    }
+
+    @Override
+    public synchronized String toString() {
+      return data.toString(UTF_8);
+    }
+  }
+
+  /** Asynchronous context running the tasks on the calling thread. */
+  private static class FakeAsyncContext implements AsyncContext {
+    private final ServletRequest request;
+    private final List<AsyncListener> listeners = new ArrayList<>();
+    private final CountDownLatch completed = new CountDownLatch(1);
+    private long timeout;
+
+    FakeAsyncContext(ServletRequest request) {
+      this.request = request;
+    }
+
+    void fireTimeout() throws IOException {
+      for (AsyncListener listener : listeners) {
+        listener.onTimeout(new AsyncEvent(this));
+      }
+    }
+
+    boolean isCompleted() {
+      return completed.getCount() == 0;
+    }
+
+    boolean awaitCompletion() throws InterruptedException {
+      return completed.await(WAIT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public ServletRequest getRequest() {
+      return request;
+    }
+
+    @Override
+    public ServletResponse getResponse() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean hasOriginalRequestAndResponse() {
+      return true;
+    }
+
+    @Override
+    public void dispatch() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void dispatch(String path) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void dispatch(ServletContext context, String path) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void complete() {
+      completed.countDown();
+    }
+
+    @Override
+    public void start(Runnable run) {
+      run.run();
+    }
+
+    @Override
+    public void addListener(AsyncListener listener) {
+      listeners.add(listener);
+    }
+
+    @Override
+    public void addListener(
+        AsyncListener listener, ServletRequest servletRequest, ServletResponse servletResponse) {
+      listeners.add(listener);
+    }
+
+    @Override
+    public <T extends AsyncListener> T createListener(Class<T> clazz) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setTimeout(long timeout) {
+      this.timeout = timeout;
+    }
+
+    @Override
+    public long getTimeout() {
+      return timeout;
+    }
+  }
+}
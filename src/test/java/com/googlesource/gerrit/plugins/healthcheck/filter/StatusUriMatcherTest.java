@@ -0,0 +1,57 @@
+// Copyright (C) 2026 The Android Open Source Project
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.googlesource.gerrit.plugins.healthcheck.filter;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.List;
+import org.junit.Test;
+
+public class StatusUriMatcherTest {
+  private static final String STATUS_PATH = "/config/server/healthcheck~status";
+
+  @Test
+  public void shouldMatchStatusUriWithoutPrefix() {
+    StatusUriMatcher matcher = new StatusUriMatcher(List.of(), STATUS_PATH);
+
+    assertThat(matcher.matches(STATUS_PATH)).isTrue();
+    assertThat(matcher.matches("/a" + STATUS_PATH)).isTrue();
+    assertThat(matcher.matches("/b" + STATUS_PATH)).isFalse();
+    assertThat(matcher.matches("/a/a" + STATUS_PATH)).isFalse();
+  }
+
+  @Test
+  public void shouldMatchStatusUriWithMultiplePrefixes() {
+    StatusUriMatcher matcher = new StatusUriMatcher(List.of("r", "gerrit"), STATUS_PATH);
+
+    assertThat(matcher.matches("/r" + STATUS_PATH)).isTrue();
+    assertThat(matcher.matches("/gerrit/a" + STATUS_PATH)).isTrue();
+    assertThat(matcher.matches(STATUS_PATH)).isFalse();
+    assertThat(matcher.matches("/other" + STATUS_PATH)).isFalse();
+  }
+
+  @Test
+  public void shouldNotMatchOtherUris() {
+    StatusUriMatcher matcher = new StatusUriMatcher(List.of("", "gerrit"), STATUS_PATH);
+
+    assertThat(matcher.matches("/gerrit/plugins/gitiles.git/info/refs")).isFalse();
+    assertThat(matcher.matches("/a/plugins/gitiles.git/git-upload-pack")).isFalse();
+    assertThat(matcher.matches("/a/changes/?q=status:open")).isFalse();
+    assertThat(matcher.matches("/config/server/version")).isFalse();
+    assertThat(matcher.matches("/config/server/otherplugin~status")).isFalse();
+    assertThat(matcher.matches(STATUS_PATH + "/")).isFalse();
+    assertThat(matcher.matches("")).isFalse();
+  }
+}